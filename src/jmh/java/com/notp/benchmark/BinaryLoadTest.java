@@ -0,0 +1,146 @@
+package com.notp.benchmark;
+
+import com.notp.binary.OtpBinaryClient;
+import com.notp.constant.OtpErrorCode;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 二进制验证接口压测（闭环：每条连接发出一个窗口的流水线请求，收齐响应后立即发下一个窗口）
+ * 与 HttpLoadTest 对 /otp/verify 的结果对比即可看出协议开销；验证码为随机值，压测时应关闭尝试限制，
+ * 否则大部分请求会在锁定后直接拒绝：
+ *
+ * <pre>
+ * java -jar app.jar --otp.binary.enabled=true --otp.rate-limit.enabled=false
+ * mvn -Pbenchmark compile exec:exec -Dbenchmark.main=com.notp.benchmark.BinaryLoadTest \
+ *     -Djmh.args="host=127.0.0.1 port=9091 connections=16 pipeline=64 duration=30"
+ * </pre>
+ *
+ * 参数（key=value）：
+ * host、port 服务地址；users 用户ID范围[1, users]；connections 连接数；pipeline 每个窗口的请求数；
+ * warmup、duration 预热和测量秒数；label 结果标签
+ *
+ * @author sign
+ */
+public class BinaryLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index > 0) {
+                options.put(arg.substring(0, index), arg.substring(index + 1));
+            }
+        }
+        String host = options.getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(options.getOrDefault("port", "9091"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "16"));
+        int pipeline = Integer.parseInt(options.getOrDefault("pipeline", "64"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        String label = options.getOrDefault("label", "binary");
+
+        System.out.printf("压测 %s:%d，%d条连接，流水线%d，预热%ds，测量%ds%n",
+                host, port, connections, pipeline, warmup, duration);
+        run(host, port, users, connections, pipeline, warmup, null);
+        Result result = new Result();
+        run(host, port, users, connections, pipeline, duration, result);
+        result.print(label, duration, pipeline);
+    }
+
+    private static void run(String host, int port, int users, int connections, int pipeline,
+                            int seconds, Result result) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int t = 0; t < connections; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                long[] userIds = new long[pipeline];
+                int[] codes = new int[pipeline];
+                OtpErrorCode[] results = new OtpErrorCode[pipeline];
+                Map<OtpErrorCode, Long> outcomes = new EnumMap<>(OtpErrorCode.class);
+                long id = worker % users;
+                try (OtpBinaryClient client = new OtpBinaryClient(host, port, pipeline)) {
+                    while (System.nanoTime() < deadline) {
+                        for (int i = 0; i < pipeline; i++) {
+                            id = id % users + 1;
+                            userIds[i] = id;
+                            codes[i] = (int) ((id * 7919 + System.nanoTime()) % 1_000_000);
+                        }
+                        long start = System.nanoTime();
+                        client.verify(userIds, codes, results);
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                        for (OtpErrorCode outcome : results) {
+                            outcomes.merge(outcome, 1L, Long::sum);
+                        }
+                    }
+                } catch (Exception e) {
+                    if (result != null) {
+                        result.errors.incrementAndGet();
+                    }
+                    System.err.println("连接异常: " + e.getMessage());
+                } finally {
+                    if (result != null) {
+                        result.add(latencies, count, outcomes);
+                    }
+                    done.countDown();
+                }
+            }, "load-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+    }
+
+    /**
+     * 汇总的窗口往返延迟样本和结果分布
+     */
+    private static final class Result {
+
+        private final AtomicLong errors = new AtomicLong();
+        private final Map<OtpErrorCode, Long> outcomes = new EnumMap<>(OtpErrorCode.class);
+        private long[] latencies = new long[0];
+        private int count;
+
+        private synchronized void add(long[] samples, int length, Map<OtpErrorCode, Long> workerOutcomes) {
+            if (count + length > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + length));
+            }
+            System.arraycopy(samples, 0, latencies, count, length);
+            count += length;
+            workerOutcomes.forEach((outcome, n) -> outcomes.merge(outcome, n, Long::sum));
+        }
+
+        private void print(String label, int seconds, int pipeline) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            long requests = (long) count * pipeline;
+            System.out.printf("[%s] 请求数 %d，连接错误 %d，吞吐量 %.1f req/s%n",
+                    label, requests, errors.get(), requests / (double) seconds);
+            if (count > 0) {
+                System.out.printf("[%s] 窗口往返 p50 %.2fms，p99 %.2fms，p99.9 %.2fms，max %.2fms%n", label,
+                        percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                        sorted[count - 1] / 1e6);
+            }
+            StringBuilder distribution = new StringBuilder();
+            outcomes.forEach((outcome, n) -> distribution.append(' ').append(outcome.name()).append('=').append(n));
+            System.out.printf("[%s] 结果分布%s%n", label, distribution);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
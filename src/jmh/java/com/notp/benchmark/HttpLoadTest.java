@@ -0,0 +1,143 @@
+package com.notp.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OTP接口HTTP压测（闭环：每个并发连接收到响应后立即发下一个请求）
+ * 用于对比平台线程与虚拟线程模式下的吞吐量和p99延迟：
+ * 分别以默认配置和 --spring.profiles.active=virtual 启动应用，用相同参数各跑一次
+ *
+ * <pre>
+ * mvn -Pbenchmark compile exec:exec -Dbenchmark.main=com.notp.benchmark.HttpLoadTest \
+ *     -Djmh.args="url=http://127.0.0.1:8080 concurrency=400 duration=30 label=virtual"
+ * </pre>
+ *
+ * 参数（key=value）：
+ * url 服务地址；path 请求路径，{id}替换为用户ID；method GET或POST；
+ * users 用户ID范围[1, users]；concurrency 并发连接数；warmup、duration 预热和测量秒数；label 结果标签
+ *
+ * @author sign
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index > 0) {
+                options.put(arg.substring(0, index), arg.substring(index + 1));
+            }
+        }
+        String url = options.getOrDefault("url", "http://127.0.0.1:8080");
+        String path = options.getOrDefault("path", "/otp/status?userId={id}");
+        String method = options.getOrDefault("method", "GET");
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "400"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        String label = options.getOrDefault("label", "default");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        System.out.printf("压测 %s%s，%s，并发%d，预热%ds，测量%ds%n", url, path, method, concurrency, warmup, duration);
+        run(client, url, path, method, users, concurrency, warmup, null);
+        Result result = new Result();
+        run(client, url, path, method, users, concurrency, duration, result);
+        result.print(label, duration);
+    }
+
+    private static void run(HttpClient client, String url, String path, String method, int users,
+                            int concurrency, int seconds, Result result) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int t = 0; t < concurrency; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                long id = worker % users;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        id = id % users + 1;
+                        URI uri = URI.create(url + path.replace("{id}", Long.toString(id)));
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .timeout(Duration.ofSeconds(30))
+                                .method(method, HttpRequest.BodyPublishers.noBody())
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 500 && result != null) {
+                                result.errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            if (result != null) {
+                                result.errors.incrementAndGet();
+                            }
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                } finally {
+                    if (result != null) {
+                        result.add(latencies, count);
+                    }
+                    done.countDown();
+                }
+            }, "load-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+    }
+
+    /**
+     * 汇总的延迟样本
+     */
+    private static final class Result {
+
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[0];
+        private int count;
+
+        private synchronized void add(long[] samples, int length) {
+            if (count + length > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + length));
+            }
+            System.arraycopy(samples, 0, latencies, count, length);
+            count += length;
+        }
+
+        private void print(String label, int seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("[%s] 请求数 %d，错误 %d，吞吐量 %.1f req/s%n",
+                    label, count, errors.get(), count / (double) seconds);
+            if (count > 0) {
+                System.out.printf("[%s] p50 %.2fms，p99 %.2fms，p99.9 %.2fms，max %.2fms%n", label,
+                        percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                        sorted[count - 1] / 1e6);
+            }
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
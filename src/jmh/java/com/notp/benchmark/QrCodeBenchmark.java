@@ -0,0 +1,70 @@
+package com.notp.benchmark;
+
+import com.notp.util.QrCodeUtil;
+import com.notp.util.TotpUtil;
+import com.notp.vo.QrModuleMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二维码渲染基准测试（ZXing PNG、直写1位PNG、SVG、模块位图）
+ *
+ * @author sign
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QrCodeBenchmark {
+
+    @Param({"300", "400"})
+    private int size;
+
+    private String otpUrl;
+
+    @Setup
+    public void setup() {
+        otpUrl = "otpauth://totp/NOTP-System:12345?secret=" + TotpUtil.generateSecret()
+                + "&issuer=NOTP-System&algorithm=SHA512&digits=6&period=30";
+    }
+
+    @Benchmark
+    public byte[] generateQRCodeImage() {
+        return QrCodeUtil.generateQRCodeImage(otpUrl, size, size);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] generateQRCodeImageMultiThread() {
+        return QrCodeUtil.generateQRCodeImage(otpUrl, size, size);
+    }
+
+    @Benchmark
+    public byte[] generateMonochromePng() {
+        return QrCodeUtil.generateMonochromePng(otpUrl, size, size);
+    }
+
+    @Benchmark
+    public String generateSvg() {
+        return QrCodeUtil.generateSvg(otpUrl);
+    }
+
+    @Benchmark
+    public QrModuleMatrix generateModuleMatrix() {
+        return QrCodeUtil.generateModuleMatrix(otpUrl);
+    }
+}
@@ -0,0 +1,87 @@
+package com.notp.benchmark;
+
+import com.notp.util.TotpEngine;
+import com.notp.util.TotpUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TOTP验证码生成与验证基准测试
+ * 验证场景使用错误验证码，保证每次都检查完整的3个时间窗口
+ *
+ * @author sign
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TotpBenchmark {
+
+    private String secret;
+    private byte[] key;
+    private long counter;
+    private String wrongCode;
+    private int wrongCodeValue;
+
+    @Setup
+    public void setup() {
+        secret = TotpUtil.generateSecret();
+        key = TotpUtil.decodeSecret(secret);
+        counter = TotpUtil.getEngine().currentCounter();
+        // 当前验证码加1，保证3个窗口均不匹配（概率上可忽略的碰撞不影响测量）
+        TotpEngine engine = TotpUtil.getEngine();
+        wrongCodeValue = (engine.generate(key, counter) + 1) % 1_000_000;
+        wrongCode = engine.format(wrongCodeValue);
+    }
+
+    @Benchmark
+    public String generateCode() {
+        return TotpUtil.generateCode(secret, counter);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateCodeMultiThread() {
+        return TotpUtil.generateCode(secret, counter);
+    }
+
+    @Benchmark
+    public int engineGenerate() {
+        return TotpUtil.getEngine().generate(key, counter);
+    }
+
+    @Benchmark
+    public boolean verifyCode() {
+        return TotpUtil.verifyCode(wrongCode, secret);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean verifyCodeMultiThread() {
+        return TotpUtil.verifyCode(wrongCode, secret);
+    }
+
+    @Benchmark
+    public boolean engineVerify() {
+        return TotpUtil.getEngine().verify(key, wrongCodeValue, counter, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean engineVerifyMultiThread() {
+        return TotpUtil.getEngine().verify(key, wrongCodeValue, counter, 1);
+    }
+}
@@ -0,0 +1,59 @@
+package com.notp.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notp.entity.SysOtpAuditLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 追加写入本地文件，每行一条JSON（NDJSON）
+ * 每批编码后一次写入，可选每批fsync
+ *
+ * @author sign
+ */
+public class FileOtpAuditSink implements OtpAuditSink, Closeable {
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private final boolean fsync;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+
+    public FileOtpAuditSink(ObjectMapper objectMapper, Path path, boolean fsync) throws IOException {
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void write(List<SysOtpAuditLog> logs) throws IOException {
+        buffer.reset();
+        for (SysOtpAuditLog log : logs) {
+            objectMapper.writeValue(buffer, log);
+            buffer.write('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,25 @@
+package com.notp.audit;
+
+import com.notp.entity.SysOtpAuditLog;
+import com.notp.mapper.SysOtpAuditLogMapper;
+
+import java.util.List;
+
+/**
+ * 写入sys_otp_audit_log表，每批一条多行INSERT
+ *
+ * @author sign
+ */
+public class JdbcOtpAuditSink implements OtpAuditSink {
+
+    private final SysOtpAuditLogMapper auditLogMapper;
+
+    public JdbcOtpAuditSink(SysOtpAuditLogMapper auditLogMapper) {
+        this.auditLogMapper = auditLogMapper;
+    }
+
+    @Override
+    public void write(List<SysOtpAuditLog> logs) {
+        auditLogMapper.insertBatch(logs);
+    }
+}
@@ -0,0 +1,155 @@
+package com.notp.audit;
+
+import com.notp.config.OtpProperties;
+import com.notp.entity.SysOtpAuditLog;
+import com.notp.util.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * OTP验证审计日志
+ * 验证线程只把记录放入有界无锁环形缓冲区，不做任何IO；缓冲区满时丢弃并计数，不阻塞验证。
+ * 后台单线程按批取出后交给 {@link OtpAuditSink} 写入（数据库多行INSERT或本地追加文件），
+ * 停止时先写完缓冲区中的剩余记录。
+ *
+ * @author sign
+ */
+@Slf4j
+@Component
+public class OtpAuditLog implements SmartLifecycle {
+
+    private final OtpProperties.Audit config;
+    private final OtpAuditSink sink;
+    private final MpscRingBuffer<SysOtpAuditLog> buffer;
+    private final Counter writtenCounter;
+    private final Counter queueFullCounter;
+    private final Counter writeFailedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public OtpAuditLog(OtpProperties properties, OtpAuditSink sink, MeterRegistry registry) {
+        this.config = properties.getAudit();
+        this.sink = sink;
+        this.buffer = new MpscRingBuffer<>(config.getBufferSize());
+        Gauge.builder("otp.audit.queue.depth", buffer, MpscRingBuffer::size)
+                .description("审计缓冲区中待写入的记录数，接近容量说明写入跟不上")
+                .register(registry);
+        Gauge.builder("otp.audit.queue.capacity", buffer, MpscRingBuffer::capacity)
+                .description("审计缓冲区容量")
+                .register(registry);
+        this.writtenCounter = Counter.builder("otp.audit.written")
+                .description("已写入的审计记录数")
+                .register(registry);
+        this.queueFullCounter = Counter.builder("otp.audit.dropped")
+                .description("丢弃的审计记录数")
+                .tag("reason", "queue_full")
+                .register(registry);
+        this.writeFailedCounter = Counter.builder("otp.audit.dropped")
+                .description("丢弃的审计记录数")
+                .tag("reason", "write_failed")
+                .register(registry);
+        this.flushTimer = Timer.builder("otp.audit.flush")
+                .description("每批审计记录的写入耗时")
+                .register(registry);
+    }
+
+    /**
+     * 记录一次验证，只做一次入队
+     *
+     * @param userId 用户ID
+     * @param outcome 验证结果代码
+     * @param clientIp 客户端IP，可为null
+     * @param timeStep 时间步长或期望计数器，可为null
+     */
+    public void record(Long userId, String outcome, String clientIp, Long timeStep) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        SysOtpAuditLog entry = new SysOtpAuditLog();
+        entry.setUserId(userId);
+        entry.setOutcome(outcome);
+        entry.setClientIp(clientIp);
+        entry.setTimeStep(timeStep);
+        entry.setVerifyTime(new Date());
+        if (!buffer.offer(entry)) {
+            queueFullCounter.increment();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "otp-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(config.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (buffer.size() > 0) {
+            log.warn("OTP审计日志停止时仍有{}条记录未写入", buffer.size());
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drainLoop() {
+        List<SysOtpAuditLog> batch = new ArrayList<>(config.getBatchSize());
+        long idleNanos = config.getFlushInterval().toNanos();
+        while (true) {
+            batch.clear();
+            if (buffer.drainTo(batch, config.getBatchSize()) == 0) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(idleNanos);
+                continue;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<SysOtpAuditLog> batch) {
+        long start = System.nanoTime();
+        try {
+            sink.write(batch);
+            writtenCounter.increment(batch.size());
+        } catch (Exception e) {
+            writeFailedCounter.increment(batch.size());
+            log.warn("OTP审计日志写入失败，丢弃{}条记录", batch.size(), e);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.notp.audit;
+
+import com.notp.entity.SysOtpAuditLog;
+
+import java.util.List;
+
+/**
+ * OTP审计日志写入目标
+ * 由后台写入线程按批调用，实现无需线程安全
+ *
+ * @author sign
+ */
+public interface OtpAuditSink {
+
+    /**
+     * 写入一批审计日志，抛出异常时整批计为写入失败
+     *
+     * @param logs 审计日志，按记录顺序排列
+     */
+    void write(List<SysOtpAuditLog> logs) throws Exception;
+}
@@ -0,0 +1,106 @@
+package com.notp.binary;
+
+import com.notp.constant.OtpErrorCode;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * OTP二进制验证客户端（协议见 {@link OtpBinaryProtocol}）
+ * 一个实例对应一条阻塞连接，方法加锁串行使用；并发调用方各自持有实例或自行池化。
+ * 批量验证按窗口流水线发送：一次写出一个窗口的请求，再按顺序读回对应的响应。
+ *
+ * @author sign
+ */
+public class OtpBinaryClient implements Closeable {
+
+    /**
+     * 默认流水线窗口（请求数）
+     */
+    public static final int DEFAULT_WINDOW = 256;
+
+    private final SocketChannel channel;
+    private final int window;
+    private final ByteBuffer requestBuffer;
+    private final ByteBuffer responseBuffer;
+
+    public OtpBinaryClient(String host, int port) throws IOException {
+        this(host, port, DEFAULT_WINDOW);
+    }
+
+    public OtpBinaryClient(String host, int port, int window) throws IOException {
+        if (window <= 0) {
+            throw new IllegalArgumentException("流水线窗口必须大于0");
+        }
+        this.window = window;
+        this.requestBuffer = ByteBuffer.allocate(window * OtpBinaryProtocol.REQUEST_FRAME);
+        this.responseBuffer = ByteBuffer.allocate(window * OtpBinaryProtocol.RESPONSE_FRAME);
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * 验证单个验证码
+     *
+     * @param userId 用户ID
+     * @param code 验证码数值
+     * @return 验证结果，SUCCESS表示通过
+     */
+    public synchronized OtpErrorCode verify(long userId, int code) throws IOException {
+        OtpErrorCode[] results = new OtpErrorCode[1];
+        verify(new long[]{userId}, new int[]{code}, results);
+        return results[0];
+    }
+
+    /**
+     * 流水线批量验证，结果与请求顺序一致
+     *
+     * @param userIds 用户ID
+     * @param codes 验证码数值，与userIds一一对应
+     * @param results 验证结果输出，长度不小于userIds
+     */
+    public synchronized void verify(long[] userIds, int[] codes, OtpErrorCode[] results) throws IOException {
+        if (userIds.length != codes.length || results.length < userIds.length) {
+            throw new IllegalArgumentException("用户ID、验证码和结果数组长度不一致");
+        }
+        for (int offset = 0; offset < userIds.length; offset += window) {
+            int count = Math.min(window, userIds.length - offset);
+            requestBuffer.clear();
+            for (int i = offset; i < offset + count; i++) {
+                requestBuffer.putInt(OtpBinaryProtocol.REQUEST_LENGTH);
+                requestBuffer.putLong(userIds[i]);
+                requestBuffer.putInt(codes[i]);
+            }
+            requestBuffer.flip();
+            while (requestBuffer.hasRemaining()) {
+                channel.write(requestBuffer);
+            }
+
+            responseBuffer.clear();
+            responseBuffer.limit(count * OtpBinaryProtocol.RESPONSE_FRAME);
+            while (responseBuffer.hasRemaining()) {
+                if (channel.read(responseBuffer) < 0) {
+                    throw new EOFException("服务端关闭了连接");
+                }
+            }
+            responseBuffer.flip();
+            for (int i = offset; i < offset + count; i++) {
+                int length = responseBuffer.getInt();
+                if (length != OtpBinaryProtocol.RESPONSE_LENGTH) {
+                    throw new IOException("响应帧长度错误: " + length);
+                }
+                results[i] = OtpErrorCode.fromByte(responseBuffer.get());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.notp.binary;
+
+/**
+ * OTP二进制验证协议
+ * 每帧以4字节大端长度开头，后跟负载：
+ * <pre>
+ * 请求  | length=12 (int32) | userId (int64) | code (int32) |
+ * 响应  | length=1  (int32) | result (int8)  |
+ * </pre>
+ * result 为 {@link com.notp.constant.OtpErrorCode#toByte()}，0x00表示验证通过。
+ * 同一连接上可连续发送多个请求而不等待响应（流水线），响应按请求顺序返回；
+ * 长度字段不符合时服务端关闭连接。
+ * 调用方是内部服务，连接的对端地址不是终端用户的IP，因此二进制接口的验证只按用户计入尝试限制，不按IP计数，
+ * 审计日志中也不记录客户端IP。该端口没有认证，默认只监听本机地址。
+ *
+ * @author sign
+ */
+public final class OtpBinaryProtocol {
+
+    /**
+     * 长度字段字节数
+     */
+    public static final int LENGTH_FIELD = 4;
+
+    /**
+     * 请求负载字节数
+     */
+    public static final int REQUEST_LENGTH = 12;
+
+    /**
+     * 响应负载字节数
+     */
+    public static final int RESPONSE_LENGTH = 1;
+
+    /**
+     * 请求帧字节数
+     */
+    public static final int REQUEST_FRAME = LENGTH_FIELD + REQUEST_LENGTH;
+
+    /**
+     * 响应帧字节数
+     */
+    public static final int RESPONSE_FRAME = LENGTH_FIELD + RESPONSE_LENGTH;
+
+    private OtpBinaryProtocol() {
+    }
+}
@@ -0,0 +1,438 @@
+package com.notp.binary;
+
+import com.notp.config.OtpProperties;
+import com.notp.constant.OtpErrorCode;
+import com.notp.service.OtpService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OTP二进制验证服务（协议见 {@link OtpBinaryProtocol}）
+ * 与Tomcat并行监听独立端口，供内部服务调用。接收线程阻塞accept，连接轮流分配给IO线程（NIO Selector）；
+ * IO线程只负责读取和拆帧，验证在验证线程池中执行（缓存未命中时会查库），每个连接同一时刻只有一个验证任务，
+ * 按顺序处理排队的请求，响应攒在输出缓冲区中，队列处理完或缓冲区满时一次写出。
+ * 排队请求达到 max-pipelined 或输出缓冲区写不出去时暂停读取该连接，由TCP流控反压客户端。
+ *
+ * @author sign
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "otp.binary", name = "enabled", havingValue = "true")
+public class OtpBinaryServer implements SmartLifecycle {
+
+    private final OtpService otpService;
+    private final OtpProperties.Binary config;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Counter protocolErrorCounter;
+
+    private volatile boolean running;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private IoLoop[] ioLoops;
+    private ExecutorService workers;
+
+    public OtpBinaryServer(OtpService otpService, OtpProperties properties, MeterRegistry registry) {
+        this.otpService = otpService;
+        this.config = properties.getBinary();
+        Gauge.builder("otp.binary.connections", connections, AtomicInteger::get)
+                .description("二进制验证服务的当前连接数")
+                .register(registry);
+        this.protocolErrorCounter = Counter.builder("otp.binary.protocol.errors")
+                .description("因帧格式错误被关闭的连接数")
+                .register(registry);
+    }
+
+    @Override
+    public void start() {
+        int workerThreads = config.getWorkerThreads() > 0
+                ? config.getWorkerThreads() : Runtime.getRuntime().availableProcessors() * 2;
+        AtomicInteger workerIndex = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerThreads,
+                task -> daemon(task, "otp-binary-worker-" + workerIndex.incrementAndGet()));
+        try {
+            ioLoops = new IoLoop[Math.max(1, config.getIoThreads())];
+            for (int i = 0; i < ioLoops.length; i++) {
+                ioLoops[i] = new IoLoop(Selector.open(), "otp-binary-io-" + (i + 1));
+            }
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(config.getBindAddress(), config.getPort()), 1024);
+        } catch (IOException e) {
+            throw new IllegalStateException("二进制验证服务启动失败: " + config.getBindAddress() + ":" + config.getPort(), e);
+        }
+        running = true;
+        for (IoLoop loop : ioLoops) {
+            loop.thread.start();
+        }
+        acceptor = daemon(this::acceptLoop, "otp-binary-acceptor");
+        acceptor.start();
+        log.info("二进制验证服务已启动: {}:{}", config.getBindAddress(), config.getPort());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        closeQuietly(serverChannel);
+        join(acceptor);
+        for (IoLoop loop : ioLoops) {
+            loop.selector.wakeup();
+            join(loop.thread);
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 实际监听的端口（配置为0时由系统分配）
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                ioLoops[next++ % ioLoops.length].register(channel);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("二进制验证服务接受连接失败", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个IO线程及其Selector
+     */
+    private final class IoLoop implements Runnable {
+
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+        IoLoop(Selector selector, String name) {
+            this.selector = selector;
+            this.thread = daemon(this, name);
+        }
+
+        void register(SocketChannel channel) {
+            registrations.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = registrations.poll()) != null) {
+                        Connection connection = new Connection(channel, selector);
+                        try {
+                            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                            connections.incrementAndGet();
+                        } catch (ClosedChannelException e) {
+                            closeQuietly(channel);
+                        }
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                        } catch (IOException | CancelledKeyException e) {
+                            log.debug("二进制验证连接异常关闭: {}", e.getMessage());
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.error("二进制验证服务IO线程异常退出", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection connection) {
+                        connection.close();
+                    }
+                }
+                closeQuietly(selector);
+            }
+        }
+    }
+
+    /**
+     * 单个连接：输入缓冲区、待验证请求队列和输出缓冲区，均在连接锁内访问
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final Selector selector;
+        private final String clientIp;
+        private final ByteBuffer in;
+        private final ByteBuffer out;
+        private final long[] userIds;
+        private final int[] codes;
+        private SelectionKey key;
+        private int head;
+        private int size;
+        private boolean scheduled;
+        private boolean closed;
+
+        Connection(SocketChannel channel, Selector selector) {
+            this.channel = channel;
+            this.selector = selector;
+            this.clientIp = remoteIp(channel);
+            int capacity = Math.max(1, config.getMaxPipelined());
+            this.in = ByteBuffer.allocate(capacity * OtpBinaryProtocol.REQUEST_FRAME);
+            this.out = ByteBuffer.allocate(capacity * OtpBinaryProtocol.RESPONSE_FRAME);
+            this.userIds = new long[capacity];
+            this.codes = new int[capacity];
+        }
+
+        /**
+         * IO线程：读取并拆帧，有请求排队且没有验证任务时提交一个
+         */
+        synchronized void onReadable() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            parse();
+            schedule();
+            updateInterest(false);
+        }
+
+        /**
+         * IO线程：继续写出上次没写完的响应，写完后恢复处理
+         */
+        synchronized void onWritable() throws IOException {
+            flush();
+            schedule();
+            updateInterest(false);
+        }
+
+        /**
+         * 验证线程：逐个处理排队的请求，验证在锁外执行
+         */
+        void process() {
+            while (true) {
+                long userId;
+                int code;
+                synchronized (this) {
+                    if (closed || size == 0 || out.remaining() < OtpBinaryProtocol.RESPONSE_FRAME) {
+                        scheduled = false;
+                        flushQuietly();
+                        return;
+                    }
+                    userId = userIds[head];
+                    code = codes[head];
+                    head = (head + 1) % userIds.length;
+                    size--;
+                }
+                byte result = verify(userId, code);
+                synchronized (this) {
+                    if (closed) {
+                        scheduled = false;
+                        return;
+                    }
+                    out.putInt(OtpBinaryProtocol.RESPONSE_LENGTH);
+                    out.put(result);
+                    try {
+                        // 输入缓冲区中因队列已满而未拆出的请求
+                        parse();
+                    } catch (IOException e) {
+                        scheduled = false;
+                        abort(e);
+                        return;
+                    }
+                    if (size == 0 || out.remaining() < OtpBinaryProtocol.RESPONSE_FRAME) {
+                        flushQuietly();
+                    }
+                }
+            }
+        }
+
+        private byte verify(long userId, int code) {
+            try {
+                // 对端是调用方服务而不是终端用户，不传IP，只按用户计入尝试限制
+                return OtpErrorCode.fromCode(otpService.verifyOtp(userId, code, null).getCode()).toByte();
+            } catch (Exception e) {
+                log.warn("二进制协议验证OTP失败: userId={}", userId, e);
+                return OtpErrorCode.SYSTEM_ERROR.toByte();
+            }
+        }
+
+        private void parse() throws IOException {
+            in.flip();
+            try {
+                while (in.remaining() >= OtpBinaryProtocol.LENGTH_FIELD && size < userIds.length) {
+                    int length = in.getInt(in.position());
+                    if (length != OtpBinaryProtocol.REQUEST_LENGTH) {
+                        protocolErrorCounter.increment();
+                        throw new IOException("请求帧长度错误: " + length);
+                    }
+                    if (in.remaining() < OtpBinaryProtocol.REQUEST_FRAME) {
+                        break;
+                    }
+                    in.getInt();
+                    int tail = (head + size) % userIds.length;
+                    userIds[tail] = in.getLong();
+                    codes[tail] = in.getInt();
+                    size++;
+                }
+            } finally {
+                in.compact();
+            }
+        }
+
+        private void schedule() {
+            if (!scheduled && !closed && size > 0 && out.remaining() >= OtpBinaryProtocol.RESPONSE_FRAME) {
+                scheduled = true;
+                workers.execute(this::process);
+            }
+        }
+
+        private void flush() throws IOException {
+            if (out.position() == 0) {
+                return;
+            }
+            out.flip();
+            try {
+                channel.write(out);
+            } finally {
+                out.compact();
+            }
+        }
+
+        private void flushQuietly() {
+            try {
+                flush();
+                updateInterest(true);
+            } catch (IOException e) {
+                abort(e);
+            }
+        }
+
+        /**
+         * 队列满时停止读取，输出缓冲区有剩余时关注可写事件
+         */
+        private void updateInterest(boolean wakeup) {
+            if (closed || !key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            if (size < userIds.length && in.hasRemaining()) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (out.position() > 0) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            if (key.interestOps() != ops) {
+                key.interestOps(ops);
+                if (wakeup) {
+                    selector.wakeup();
+                }
+            }
+        }
+
+        private void abort(IOException e) {
+            log.debug("二进制验证连接异常关闭: {} {}", clientIp, e.getMessage());
+            close();
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+                connections.decrementAndGet();
+            }
+            OtpBinaryServer.closeQuietly(channel);
+        }
+    }
+
+    private static String remoteIp(SocketChannel channel) {
+        try {
+            return channel.getRemoteAddress() instanceof InetSocketAddress address
+                    ? address.getAddress().getHostAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static void join(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            log.debug("关闭资源失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.notp.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * 异步缓存的调用线程加载
+ * 未命中时先放入占位Future再在调用线程上加载，加载函数不在ConcurrentHashMap的桶锁内执行，
+ * 并发请求同一键时只加载一次，其余请求等待Future而不是阻塞在桶锁上。
+ * 注意这只避免了缓存本身的锁：mysql-connector-j 8.2.0 执行查询时仍进入 synchronized 块，
+ * JDK 21~23 上虚拟线程查库期间会钉住载体线程，JDK 24 起（JEP 491）才不再钉住
+ *
+ * @author sign
+ */
+final class AsyncCacheLoader {
+
+    private AsyncCacheLoader() {
+    }
+
+    /**
+     * 获取缓存值，未命中时在调用线程上通过loader加载
+     *
+     * @param cache 异步缓存
+     * @param key 键
+     * @param loader 加载函数，返回null时不缓存
+     * @return 缓存值，可能为null
+     */
+    static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return join(cached);
+        }
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> existing = cache.asMap().putIfAbsent(key, loading);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            V value = loader.apply(key);
+            // 结果为null时Caffeine会自动移除该项；加载期间被失效时不会重新放回
+            loading.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 已完成加载时返回缓存值，未命中或仍在加载时返回null，不记录命中统计
+     */
+    static <K, V> V getIfLoaded(AsyncCache<K, V> cache, K key) {
+        CompletableFuture<V> future = cache.asMap().get(key);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.join();
+    }
+
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.notp.cache;
+
+import com.notp.config.OtpProperties;
+import com.notp.invalidation.LoopbackOtpInvalidationTransport;
+import com.notp.invalidation.OtpInvalidationTransport;
+import com.notp.mapper.SysUserOtpMapper;
+import com.notp.util.LongBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+
+/**
+ * 已配置OTP用户的布隆过滤器
+ * 大部分用户未配置OTP，过滤器判定不存在时直接按未配置处理，无需查库；
+ * 启动后扫描sys_user_otp的user_id构建，之后定期重建，构建完成前所有用户都视为可能存在。
+ * 禁用OTP只修改enabled列、记录仍在，因此只需在写入记录时加入，不需要删除。
+ * 其他节点上的启用只能通过失效广播得知，因此只有注册了跨节点的 {@link OtpInvalidationTransport} 时才生效，
+ * 默认的进程内回环传输下始终视为可能存在；用户ID大于上次扫描到的最大用户ID（上次重建后新建的用户）时同样视为可能存在，
+ * 广播丢失时也不会把新用户误判为未配置
+ *
+ * @author sign
+ */
+@Slf4j
+@Component
+public class EnrolledUserFilter {
+
+    private final SysUserOtpMapper userOtpMapper;
+    private final OtpProperties.EnrolledFilter config;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final boolean enabled;
+
+    /**
+     * 当前使用的过滤器及其扫描到的最大用户ID，null表示尚未构建完成
+     */
+    private volatile Snapshot active;
+
+    /**
+     * 重建中的过滤器，重建期间的新增同时写入两者
+     */
+    private volatile LongBloomFilter building;
+
+    private long lastCount;
+
+    public EnrolledUserFilter(SysUserOtpMapper userOtpMapper, OtpProperties properties,
+                              TransactionTemplate transactionTemplate, OtpInvalidationTransport transport) {
+        this.userOtpMapper = userOtpMapper;
+        this.config = properties.getEnrolledFilter();
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        boolean loopback = transport instanceof LoopbackOtpInvalidationTransport;
+        if (config.isEnabled() && loopback) {
+            log.warn("已配置OTP用户过滤器需要跨节点的OtpInvalidationTransport，当前为进程内回环传输，过滤器不生效");
+        }
+        this.enabled = config.isEnabled() && !loopback;
+    }
+
+    /**
+     * 判断用户是否可能已配置OTP
+     *
+     * @param userId 用户ID
+     * @return false表示一定未配置
+     */
+    public boolean mightContain(Long userId) {
+        Snapshot snapshot = active;
+        return snapshot == null || userId > snapshot.maxUserId() || snapshot.filter().mightContain(userId);
+    }
+
+    /**
+     * 写入用户OTP记录时调用：立即加入，处于事务中时提交后再加入一次，
+     * 保证与提交前已开始扫描的重建并发时不会丢失
+     *
+     * @param userId 用户ID
+     */
+    public void add(Long userId) {
+        put(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(userId);
+                }
+            });
+        }
+    }
+
+    private void put(long userId) {
+        // 先读building再读active：重建切换时先替换active再清空building，两者至少有一个是新过滤器
+        LongBloomFilter next = building;
+        if (next != null) {
+            next.put(userId);
+        }
+        Snapshot current = active;
+        if (current != null) {
+            current.filter().put(userId);
+        }
+    }
+
+    /**
+     * 扫描全表user_id重建过滤器，启动后立即执行一次
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${otp.enrolled-filter.rebuild-interval:6h}")
+    public void rebuild() {
+        if (!enabled) {
+            active = null;
+            return;
+        }
+        long start = System.currentTimeMillis();
+        LongBloomFilter filter = new LongBloomFilter(Math.max(config.getExpectedInsertions(), lastCount * 2),
+                config.getFpp());
+        building = filter;
+        try {
+            long[] scan = readOnlyTransactionTemplate.execute(status -> {
+                long scanned = 0;
+                long maxUserId = 0;
+                try (Cursor<Long> cursor = userOtpMapper.scanUserIds()) {
+                    for (Long userId : cursor) {
+                        filter.put(userId);
+                        maxUserId = Math.max(maxUserId, userId);
+                        scanned++;
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("关闭用户ID游标失败", e);
+                }
+                return new long[]{scanned, maxUserId};
+            });
+            lastCount = scan == null ? 0 : scan[0];
+            active = new Snapshot(filter, scan == null ? 0 : scan[1]);
+            log.info("已配置OTP用户过滤器重建完成，用户数: {}，占用{}KB，耗时{}ms",
+                    lastCount, filter.sizeInBytes() >> 10, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("已配置OTP用户过滤器重建失败，继续使用上一版本", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * 过滤器及构建时扫描到的最大用户ID，两者一起替换
+     */
+    private record Snapshot(LongBloomFilter filter, long maxUserId) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.notp.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notp.config.OtpProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 用户OTP密钥本地缓存
+ * 按用户ID缓存解码后的密钥及启用状态，按容量和写入时间淘汰。
+ * 未命中时在调用线程上查库（见 AsyncCacheLoader），并发请求同一用户时只查询一次
+ *
+ * @author sign
+ */
+@Component
+public class OtpKeyCache {
+
+    private final AsyncCache<Long, OtpKeyEntry> cache;
+
+    public OtpKeyCache(OtpProperties properties, MeterRegistry registry) {
+        OtpProperties.KeyCache config = properties.getKeyCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache, "otpKeyCache");
+    }
+
+    /**
+     * 获取缓存项，未命中时通过loader加载
+     *
+     * @param userId 用户ID
+     * @param loader 加载函数，返回null表示用户未配置OTP（不缓存）
+     * @return 缓存项，可能为null
+     */
+    public OtpKeyEntry get(Long userId, Function<Long, OtpKeyEntry> loader) {
+        return AsyncCacheLoader.get(cache, userId, loader);
+    }
+
+    /**
+     * 异步获取缓存项，未命中时通过返回Future的loader加载（供非阻塞数据访问使用）
+     *
+     * @param userId 用户ID
+     * @param loader 异步加载函数，结果为null表示用户未配置OTP（不缓存）
+     * @return 缓存项的Future，结果可能为null
+     */
+    public CompletableFuture<OtpKeyEntry> getAsync(Long userId,
+                                                   Function<Long, CompletableFuture<OtpKeyEntry>> loader) {
+        return cache.get(userId, (key, executor) -> loader.apply(key));
+    }
+
+    /**
+     * 获取已加载的缓存项，不触发加载
+     *
+     * @param userId 用户ID
+     * @return 缓存项，未缓存或仍在加载时返回null
+     */
+    public OtpKeyEntry getIfLoaded(Long userId) {
+        return AsyncCacheLoader.getIfLoaded(cache, userId);
+    }
+
+    /**
+     * 批量获取缓存项，未命中的用户通过loader一次性加载
+     *
+     * @param userIds 用户ID集合
+     * @param loader 批量加载函数，结果中缺失的用户视为未配置OTP（不缓存）
+     * @return 用户ID到缓存项的映射，不包含未配置OTP的用户
+     */
+    public Map<Long, OtpKeyEntry> getAll(Set<Long> userIds,
+                                         Function<Set<? extends Long>, Map<Long, OtpKeyEntry>> loader) {
+        return AsyncCacheLoader.join(cache.getAll(userIds, (keys, executor) -> CompletableFuture.completedFuture(loader.apply(keys))));
+    }
+
+    /**
+     * 使指定用户的缓存失效
+     * 处于事务中时，提交后再失效一次，避免并发读取把提交前的旧数据重新放入缓存
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        cache.synchronous().invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.synchronous().invalidate(userId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.notp.cache;
+
+import com.notp.entity.SysUserOtp;
+import com.notp.util.OtpProfile;
+import com.notp.util.TotpCodeWindow;
+import com.notp.util.TotpEngine;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户OTP密钥缓存项
+ * 保存解码后的密钥字节、启用状态及已解析的OTP参数（含计算引擎），密钥数组创建后不再修改；
+ * TOTP记住当前时间步长的验证码窗口，同一步长内的重复验证只做整数比较；
+ * HOTP记住下一个期望的计数器
+ *
+ * @author sign
+ */
+@Getter
+public final class OtpKeyEntry {
+
+    /**
+     * 记录ID
+     */
+    private final Long id;
+
+    /**
+     * 用户ID
+     */
+    private final Long userId;
+
+    /**
+     * 解码后的密钥
+     */
+    private final byte[] key;
+
+    /**
+     * 是否启用
+     */
+    private final boolean enabled;
+
+    /**
+     * OTP参数
+     */
+    private final OtpProfile profile;
+
+    /**
+     * 下一个期望的HOTP计数器
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong counter;
+
+    /**
+     * 当前时间步长的验证码窗口，步长切换后被替换
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile TotpCodeWindow codeWindow;
+
+    public OtpKeyEntry(Long id, Long userId, byte[] key, boolean enabled, OtpProfile profile, long counter) {
+        this.id = id;
+        this.userId = userId;
+        this.key = key;
+        this.enabled = enabled;
+        this.profile = profile;
+        this.counter = new AtomicLong(counter);
+    }
+
+    /**
+     * 由数据库记录和解码后的密钥创建缓存项
+     *
+     * @param userOtp 用户OTP记录
+     * @param key 解码后的密钥
+     * @return 缓存项
+     */
+    public static OtpKeyEntry of(SysUserOtp userOtp, byte[] key) {
+        return new OtpKeyEntry(userOtp.getId(), userOtp.getUserId(), key, Boolean.TRUE.equals(userOtp.getEnabled()),
+                OtpProfile.of(userOtp.getOtpType(), userOtp.getAlgorithm(), userOtp.getDigits(), userOtp.getPeriod()),
+                userOtp.getCounter() == null ? 0 : userOtp.getCounter());
+    }
+
+    /**
+     * 下一个期望的HOTP计数器
+     */
+    public long getCounter() {
+        return counter.get();
+    }
+
+    /**
+     * HOTP计数器前进（只增不减）
+     *
+     * @param next 新的下一个期望计数器
+     */
+    public void advanceCounter(long next) {
+        counter.accumulateAndGet(next, Math::max);
+    }
+
+    /**
+     * 查找与验证码匹配的计数器
+     * 当前步长的窗口已计算过时直接比较，否则计算新窗口并替换旧窗口
+     *
+     * @param engine TOTP计算引擎
+     * @param code 验证码
+     * @param counter 当前计数器
+     * @param window 允许的前后窗口数
+     * @return 匹配的计数器，未匹配时返回 {@link TotpEngine#NO_MATCH}
+     */
+    public long match(TotpEngine engine, int code, long counter, int window) {
+        TotpCodeWindow current = codeWindow;
+        if (current == null || !current.isValidFor(counter, window)) {
+            current = engine.window(key, counter, window);
+            codeWindow = current;
+        }
+        return current.match(code);
+    }
+}
@@ -0,0 +1,75 @@
+package com.notp.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notp.config.OtpProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 用户OTP启用状态本地缓存
+ * 只缓存启用标志（未配置视为未启用），不含密钥，供状态轮询使用；
+ * 启用、禁用时与密钥缓存一起失效
+ *
+ * @author sign
+ */
+@Component
+public class OtpStatusCache {
+
+    private final AsyncCache<Long, Boolean> cache;
+
+    public OtpStatusCache(OtpProperties properties, MeterRegistry registry) {
+        OtpProperties.StatusCache config = properties.getStatusCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache, "otpStatusCache");
+    }
+
+    /**
+     * 获取启用状态，未命中时通过loader加载
+     *
+     * @param userId 用户ID
+     * @param loader 加载函数
+     * @return 是否启用
+     */
+    public boolean get(Long userId, Function<Long, Boolean> loader) {
+        return Boolean.TRUE.equals(AsyncCacheLoader.get(cache, userId, loader));
+    }
+
+    /**
+     * 异步获取启用状态，未命中时通过返回Future的loader加载（供非阻塞数据访问使用）
+     *
+     * @param userId 用户ID
+     * @param loader 异步加载函数
+     * @return 是否启用的Future
+     */
+    public CompletableFuture<Boolean> getAsync(Long userId, Function<Long, CompletableFuture<Boolean>> loader) {
+        return cache.get(userId, (key, executor) -> loader.apply(key)).thenApply(Boolean.TRUE::equals);
+    }
+
+    /**
+     * 使指定用户的状态失效，处于事务中时提交后再失效一次
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        cache.synchronous().invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.synchronous().invalidate(userId);
+                }
+            });
+        }
+    }
+}
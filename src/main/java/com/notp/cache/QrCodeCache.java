@@ -0,0 +1,146 @@
+package com.notp.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.notp.config.OtpProperties;
+import com.notp.constant.QrCodeFormat;
+import com.notp.metrics.OtpMetrics;
+import com.notp.util.QrCodeUtil;
+import com.notp.vo.QrCodeImage;
+import com.notp.vo.QrModuleMatrix;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已渲染二维码缓存
+ * 以用户ID及内容、尺寸和格式的SHA-256指纹为键缓存渲染结果及其Data URI，
+ * 按占用字节数限制总容量，超出时淘汰最久未被访问的图片。
+ * 二维码内容含有OTP密钥，图片在一段时间未被访问后过期，用户启用、禁用或重新启用时随密钥缓存一起失效
+ *
+ * @author sign
+ */
+@Component
+public class QrCodeCache {
+
+    private final Cache<Key, QrCodeImage> cache;
+    private final Map<Long, Set<Key>> userKeys = new ConcurrentHashMap<>();
+    private final OtpMetrics otpMetrics;
+
+    public QrCodeCache(OtpProperties properties, MeterRegistry registry, OtpMetrics otpMetrics) {
+        this.otpMetrics = otpMetrics;
+        OtpProperties.QrCache config = properties.getQrCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaximumWeight().toBytes())
+                .weigher((Key key, QrCodeImage image) -> image.weight())
+                .expireAfterAccess(config.getExpireAfterAccess())
+                // 同步回调：在移除该项的同时更新索引，不会与随后重新放入的同一键交错
+                .evictionListener((Key key, QrCodeImage image, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "otpQrCodeCache");
+    }
+
+    /**
+     * 获取PNG二维码图片，未命中时渲染并缓存
+     *
+     * @param userId 用户ID
+     * @param text 二维码内容
+     * @param size 图片边长（像素）
+     * @return 二维码图片
+     */
+    public QrCodeImage get(Long userId, String text, int size) {
+        return get(userId, text, size, QrCodeFormat.PNG);
+    }
+
+    /**
+     * 获取指定格式的二维码，未命中时渲染并缓存
+     *
+     * @param userId 用户ID
+     * @param text 二维码内容
+     * @param size 图片边长（像素），与尺寸无关的格式忽略该值
+     * @param format 输出格式
+     * @return 二维码图片
+     */
+    public QrCodeImage get(Long userId, String text, int size, QrCodeFormat format) {
+        int renderSize = format.isScalable() ? 0 : size;
+        Key key = new Key(userId, QrCodeUtil.fingerprint(text, renderSize, format));
+        return cache.get(key, k -> {
+            index(k);
+            return render(k.fingerprint(), text, renderSize, format);
+        });
+    }
+
+    /**
+     * 清除用户的全部二维码
+     * 索引的增删都在userKeys的同一映射上原子执行，移除后不会再有键加入取出的集合；
+     * 仍在渲染的键会等渲染完成后再被移除
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        Set<Key> keys = userKeys.remove(userId);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private void index(Key key) {
+        userKeys.compute(key.userId(), (userId, keys) -> {
+            Set<Key> indexed = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            indexed.add(key);
+            return indexed;
+        });
+    }
+
+    /**
+     * 容量或过期淘汰时移出索引；主动清除时索引已先被移除
+     */
+    private void unindex(Key key) {
+        userKeys.computeIfPresent(key.userId(), (userId, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private QrCodeImage render(String fingerprint, String text, int size, QrCodeFormat format) {
+        long start = System.nanoTime();
+        QrCodeImage image = doRender(fingerprint, text, size, format);
+        otpMetrics.recordQrRender(format, System.nanoTime() - start, image.getContent().length);
+        return image;
+    }
+
+    private QrCodeImage doRender(String fingerprint, String text, int size, QrCodeFormat format) {
+        switch (format) {
+            case PNG_1BIT:
+                return image(fingerprint, format, QrCodeUtil.generateMonochromePng(text, size, size));
+            case SVG:
+                return image(fingerprint, format, QrCodeUtil.generateSvg(text).getBytes(StandardCharsets.UTF_8));
+            case MATRIX:
+                QrModuleMatrix matrix = QrCodeUtil.generateModuleMatrix(text);
+                return new QrCodeImage(fingerprint, format, matrix.toJson().getBytes(StandardCharsets.UTF_8),
+                        null, matrix);
+            case PNG:
+            default:
+                return image(fingerprint, format, QrCodeUtil.generateQRCodeImage(text, size, size));
+        }
+    }
+
+    private QrCodeImage image(String fingerprint, QrCodeFormat format, byte[] content) {
+        String dataUri = "data:" + format.getContentType() + ";base64," + Base64.getEncoder().encodeToString(content);
+        return new QrCodeImage(fingerprint, format, content, dataUri, null);
+    }
+
+    /**
+     * 缓存键：用户ID和二维码指纹
+     */
+    private record Key(Long userId, String fingerprint) {
+    }
+}
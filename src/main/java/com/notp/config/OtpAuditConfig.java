@@ -0,0 +1,38 @@
+package com.notp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notp.audit.FileOtpAuditSink;
+import com.notp.audit.JdbcOtpAuditSink;
+import com.notp.audit.OtpAuditSink;
+import com.notp.mapper.SysOtpAuditLogMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * OTP审计日志配置
+ * 未注册其他 {@link OtpAuditSink} 实现时按 otp.audit.sink 选择写入数据库或本地文件
+ *
+ * @author sign
+ */
+@Configuration
+public class OtpAuditConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(OtpAuditSink.class)
+    public OtpAuditSink otpAuditSink(OtpProperties properties, SysOtpAuditLogMapper auditLogMapper,
+                                     ObjectMapper objectMapper) throws IOException {
+        OtpProperties.Audit audit = properties.getAudit();
+        switch (audit.getSink()) {
+            case "jdbc":
+                return new JdbcOtpAuditSink(auditLogMapper);
+            case "file":
+                return new FileOtpAuditSink(objectMapper, Path.of(audit.getFilePath()), audit.isFileFsync());
+            default:
+                throw new IllegalArgumentException("不支持的审计日志写入目标: " + audit.getSink());
+        }
+    }
+}
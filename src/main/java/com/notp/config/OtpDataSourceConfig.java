@@ -0,0 +1,76 @@
+package com.notp.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.spring.boot3.autoconfigure.DruidDataSourceBuilder;
+import com.notp.datasource.OtpRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离数据源配置
+ * otp.datasource.replica-enabled=true 时替换默认的Druid数据源：主库沿用 spring.datasource 的连接信息，
+ * 从库复制主库的连接池参数（spring.datasource.druid）后使用各自的连接信息，
+ * 由 {@link OtpRoutingDataSource} 按 {@link com.notp.datasource.OtpReadRouting} 的标记选择
+ *
+ * @author sign
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+@ConditionalOnProperty(prefix = "otp.datasource", name = "replica-enabled", havingValue = "true")
+public class OtpDataSourceConfig {
+
+    @Bean(initMethod = "init")
+    @ConfigurationProperties("spring.datasource.druid")
+    public DruidDataSource otpPrimaryDataSource(DataSourceProperties dataSourceProperties) {
+        DruidDataSource dataSource = DruidDataSourceBuilder.create().build();
+        dataSource.setName("primary");
+        dataSource.setUrl(dataSourceProperties.determineUrl());
+        dataSource.setUsername(dataSourceProperties.determineUsername());
+        dataSource.setPassword(dataSourceProperties.determinePassword());
+        dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public OtpRoutingDataSource otpRoutingDataSource(DruidDataSource otpPrimaryDataSource, OtpProperties properties,
+                                                     MeterRegistry registry) {
+        OtpProperties.Datasource config = properties.getDatasource();
+        List<OtpProperties.Datasource.Replica> replicas = config.getReplicas();
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("已启用读写分离但未配置从库: otp.datasource.replicas");
+        }
+        Map<String, DataSource> replicaDataSources = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            OtpProperties.Datasource.Replica replica = replicas.get(i);
+            if (!StringUtils.hasText(replica.getUrl())) {
+                throw new IllegalArgumentException("从库未配置url: otp.datasource.replicas[" + i + "]");
+            }
+            String name = "replica-" + i;
+            DruidDataSource dataSource = otpPrimaryDataSource.cloneDruidDataSource();
+            dataSource.setName(name);
+            dataSource.setUrl(replica.getUrl());
+            if (StringUtils.hasText(replica.getUsername())) {
+                dataSource.setUsername(replica.getUsername());
+            }
+            if (StringUtils.hasText(replica.getPassword())) {
+                dataSource.setPassword(replica.getPassword());
+            }
+            replicaDataSources.put(name, dataSource);
+        }
+        return new OtpRoutingDataSource(otpPrimaryDataSource, replicaDataSources, config.getHealthCheckInterval(),
+                config.getHealthCheckTimeout(), registry);
+    }
+}
@@ -0,0 +1,23 @@
+package com.notp.config;
+
+import com.notp.invalidation.LoopbackOtpInvalidationTransport;
+import com.notp.invalidation.OtpInvalidationTransport;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * OTP缓存失效传输配置
+ * 未注册其他 {@link OtpInvalidationTransport} 实现时使用进程内回环实现
+ *
+ * @author sign
+ */
+@Configuration
+public class OtpInvalidationConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(OtpInvalidationTransport.class)
+    public OtpInvalidationTransport otpInvalidationTransport() {
+        return new LoopbackOtpInvalidationTransport();
+    }
+}
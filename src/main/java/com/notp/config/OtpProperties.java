@@ -0,0 +1,601 @@
+package com.notp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OTP服务配置
+ *
+ * @author sign
+ */
+@Data
+@ConfigurationProperties(prefix = "otp")
+public class OtpProperties {
+
+    /**
+     * 未指定参数模板时使用的模板名
+     */
+    private String defaultProfile = "default";
+
+    /**
+     * 按租户命名的OTP参数模板，启用OTP时选择，随记录保存
+     */
+    private Map<String, Profile> profiles = new LinkedHashMap<>(Map.of("default", new Profile()));
+
+    /**
+     * HOTP配置
+     */
+    private Hotp hotp = new Hotp();
+
+    /**
+     * 已解码密钥缓存配置
+     */
+    private KeyCache keyCache = new KeyCache();
+
+    /**
+     * 启用状态缓存配置
+     */
+    private StatusCache statusCache = new StatusCache();
+
+    /**
+     * 已配置OTP用户过滤器配置
+     */
+    private EnrolledFilter enrolledFilter = new EnrolledFilter();
+
+    /**
+     * 多节点缓存失效配置
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    /**
+     * 批量验证配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 防重放配置
+     */
+    private Replay replay = new Replay();
+
+    /**
+     * 验证尝试限制配置
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * 响应式接口配置（reactive profile）
+     */
+    private Reactive reactive = new Reactive();
+
+    /**
+     * 二进制验证接口配置
+     */
+    private Binary binary = new Binary();
+
+    /**
+     * 验证审计日志配置
+     */
+    private Audit audit = new Audit();
+
+    /**
+     * 二维码缓存配置
+     */
+    private QrCache qrCache = new QrCache();
+
+    /**
+     * 预生成密钥池配置
+     */
+    private SecretPool secretPool = new SecretPool();
+
+    /**
+     * 批量启用配置
+     */
+    private Enroll enroll = new Enroll();
+
+    /**
+     * 导出配置
+     */
+    private Export export = new Export();
+
+    /**
+     * 密钥静态加密配置
+     */
+    private Crypto crypto = new Crypto();
+
+    /**
+     * 读写分离配置
+     */
+    private Datasource datasource = new Datasource();
+
+    /**
+     * OTP参数模板
+     */
+    @Data
+    public static class Profile {
+
+        /**
+         * OTP类型：totp、hotp
+         */
+        private String type = "totp";
+
+        /**
+         * 哈希算法：SHA1、SHA256、SHA512
+         */
+        private String algorithm = "SHA512";
+
+        /**
+         * 验证码位数：6、8
+         */
+        private int digits = 6;
+
+        /**
+         * 时间步长秒数：30、60，仅TOTP
+         */
+        private int period = 30;
+    }
+
+    /**
+     * HOTP
+     */
+    @Data
+    public static class Hotp {
+
+        /**
+         * 验证时允许跳过的计数器数（客户端多次生成但未使用）
+         */
+        private int lookAhead = 10;
+    }
+
+    /**
+     * 已解码密钥缓存
+     */
+    @Data
+    public static class KeyCache {
+
+        /**
+         * 最大缓存用户数
+         */
+        private long maximumSize = 100_000;
+
+        /**
+         * 写入后过期时间
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+    }
+
+    /**
+     * 启用状态缓存
+     */
+    @Data
+    public static class StatusCache {
+
+        /**
+         * 最大缓存用户数
+         */
+        private long maximumSize = 1_000_000;
+
+        /**
+         * 写入后过期时间
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+    }
+
+    /**
+     * 已配置OTP用户过滤器
+     */
+    @Data
+    public static class EnrolledFilter {
+
+        /**
+         * 是否启用，关闭后每次都查询密钥缓存或数据库；
+         * 还需注册跨节点的OtpInvalidationTransport，默认的进程内回环传输下不生效
+         */
+        private boolean enabled = false;
+
+        /**
+         * 预计已配置用户数，实际用户数超过时下次重建自动扩容
+         */
+        private long expectedInsertions = 1_000_000;
+
+        /**
+         * 误判率
+         */
+        private double fpp = 0.01;
+
+        /**
+         * 重建间隔，重建会剔除已删除的记录
+         */
+        private Duration rebuildInterval = Duration.ofHours(6);
+    }
+
+    /**
+     * 多节点缓存失效
+     */
+    @Data
+    public static class Invalidation {
+
+        /**
+         * 节点ID，为空时启动时随机生成
+         */
+        private String nodeId;
+
+        /**
+         * 最多记录多少个用户的最新事件版本（用于统计乱序事件，事件总是应用）
+         */
+        private long versionCacheSize = 100_000;
+
+        /**
+         * 用户事件版本的保留时间（仅用于乱序统计），应大于传输可能的最大延迟
+         */
+        private Duration versionRetention = Duration.ofMinutes(10);
+    }
+
+    /**
+     * 批量验证
+     */
+    @Data
+    public static class Batch {
+
+        /**
+         * 单次请求最大验证数
+         */
+        private int maxSize = 500;
+
+        /**
+         * 达到该数量时并行验证
+         */
+        private int parallelThreshold = 32;
+    }
+
+    /**
+     * 防重放
+     */
+    @Data
+    public static class Replay {
+
+        /**
+         * 是否拒绝重复使用的验证码
+         */
+        private boolean enabled = true;
+
+        /**
+         * 进程内存储每代的槽位数，应不小于一个轮换周期（约2分钟）内验证的用户数
+         */
+        private int capacity = 1 << 18;
+    }
+
+    /**
+     * 验证尝试限制
+     */
+    @Data
+    public static class RateLimit {
+
+        /**
+         * 是否限制验证失败次数
+         */
+        private boolean enabled = true;
+
+        /**
+         * 统计失败次数的滑动窗口
+         */
+        private Duration window = Duration.ofMinutes(5);
+
+        /**
+         * 窗口内单个用户允许的失败次数
+         */
+        private int userMaxFailures = 5;
+
+        /**
+         * 窗口内单个IP允许的失败次数（含未配置OTP的用户），0表示不按IP限制（默认）
+         * 部署在网关或负载均衡之后时，须先配置 server.forward-headers-strategy 和可信代理取得真实客户端IP，
+         * 否则所有请求共用代理的地址，少量失败就会拒绝所有用户
+         */
+        private int ipMaxFailures = 0;
+
+        /**
+         * 首次锁定时长，之后每次锁定加倍
+         */
+        private Duration lockout = Duration.ofMinutes(1);
+
+        /**
+         * 最长锁定时长
+         */
+        private Duration maxLockout = Duration.ofHours(1);
+
+        /**
+         * 锁定次数的保留时间，之后重新从首次锁定时长开始
+         */
+        private Duration strikeReset = Duration.ofHours(24);
+
+        /**
+         * 进程内存储每代的槽位数
+         */
+        private int capacity = 1 << 18;
+    }
+
+    /**
+     * 响应式接口
+     */
+    @Data
+    public static class Reactive {
+
+        /**
+         * 执行HMAC验证、二维码渲染及阻塞调用的线程数上限，0表示CPU核数的2倍
+         */
+        private int schedulerThreads = 0;
+
+        /**
+         * 线程全忙时允许排队的任务数，超出时请求失败
+         */
+        private int schedulerQueueSize = 10_000;
+    }
+
+    /**
+     * 二进制验证接口（服务间调用）
+     */
+    @Data
+    public static class Binary {
+
+        /**
+         * 是否启动二进制验证服务
+         */
+        private boolean enabled = false;
+
+        /**
+         * 监听地址，接口没有认证，默认只监听本机；需要跨主机调用时显式配置为内网地址
+         */
+        private String bindAddress = "127.0.0.1";
+
+        /**
+         * 监听端口
+         */
+        private int port = 9091;
+
+        /**
+         * 网络IO线程数
+         */
+        private int ioThreads = 1;
+
+        /**
+         * 验证线程数，0表示CPU核数的2倍
+         */
+        private int workerThreads = 0;
+
+        /**
+         * 每个连接最多排队的请求数，超过后暂停读取该连接
+         */
+        private int maxPipelined = 1024;
+    }
+
+    /**
+     * 验证审计日志
+     */
+    @Data
+    public static class Audit {
+
+        /**
+         * 是否记录每次验证
+         */
+        private boolean enabled = true;
+
+        /**
+         * 写入目标：jdbc（sys_otp_audit_log表）或file（本地NDJSON文件）
+         */
+        private String sink = "jdbc";
+
+        /**
+         * 本地文件路径，sink为file时使用
+         */
+        private String filePath = "logs/otp-audit.ndjson";
+
+        /**
+         * 本地文件每批写入后是否fsync
+         */
+        private boolean fileFsync = false;
+
+        /**
+         * 缓冲区容量，写入跟不上时超出部分被丢弃
+         */
+        private int bufferSize = 65536;
+
+        /**
+         * 每批最多写入的记录数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 缓冲区为空时写入线程的等待间隔
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * 停止时等待剩余记录写完的最长时间
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * 二维码缓存
+     */
+    @Data
+    public static class QrCache {
+
+        /**
+         * 缓存图片占用的最大内存
+         */
+        private DataSize maximumWeight = DataSize.ofMegabytes(32);
+
+        /**
+         * 最后一次访问后的过期时间，二维码内容含有密钥，不长期留在内存中
+         */
+        private Duration expireAfterAccess = Duration.ofMinutes(5);
+    }
+
+    /**
+     * 预生成密钥池
+     */
+    @Data
+    public static class SecretPool {
+
+        /**
+         * 是否启用后台预生成，关闭时每次启用OTP现场生成
+         */
+        private boolean enabled = true;
+
+        /**
+         * 池容量
+         */
+        private int size = 1024;
+
+        /**
+         * 池中余量低于该值时唤醒后台线程补满
+         */
+        private int refillThreshold = 256;
+    }
+
+    /**
+     * 批量启用
+     */
+    @Data
+    public static class Enroll {
+
+        /**
+         * 单次请求最大用户数
+         */
+        private int maxSize = 50_000;
+
+        /**
+         * 每个事务写入的用户数
+         */
+        private int chunkSize = 500;
+    }
+
+    /**
+     * 导出
+     */
+    @Data
+    public static class Export {
+
+        /**
+         * 是否允许导出明文密钥
+         */
+        private boolean allowPlain = false;
+
+        /**
+         * 加密导出时使用的AES密钥（Base64编码，16/24/32字节），未配置时不允许加密导出
+         */
+        private String encryptionKey;
+    }
+
+    /**
+     * 密钥静态加密
+     */
+    @Data
+    public static class Crypto {
+
+        /**
+         * 密钥文件路径，每行 版本号=Base64(被主密钥包裹的数据密钥)，为空时密钥以明文存储
+         */
+        private String keyFile;
+
+        /**
+         * 主密钥（Base64编码，16/24/32字节），建议通过环境变量注入
+         */
+        private String masterKey;
+
+        /**
+         * 后台重新加密
+         */
+        private Rotation rotation = new Rotation();
+
+        @Data
+        public static class Rotation {
+
+            /**
+             * 是否把非当前版本（含明文）的记录重新加密为当前版本
+             */
+            private boolean enabled = true;
+
+            /**
+             * 执行间隔
+             */
+            private Duration interval = Duration.ofMinutes(10);
+
+            /**
+             * 每个事务处理的记录数
+             */
+            private int batchSize = 500;
+
+            /**
+             * 每次执行最多处理的批数
+             */
+            private int maxBatches = 100;
+        }
+    }
+
+    /**
+     * 读写分离：OTP查询走从库，写入和事务内的读取走主库
+     */
+    @Data
+    public static class Datasource {
+
+        /**
+         * 是否启用从库路由
+         */
+        private boolean replicaEnabled = false;
+
+        /**
+         * 从库列表，连接池参数沿用 spring.datasource.druid
+         */
+        private List<Replica> replicas = new ArrayList<>();
+
+        /**
+         * 从库健康检查间隔
+         */
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+        /**
+         * 单次健康检查的超时时间
+         */
+        private Duration healthCheckTimeout = Duration.ofSeconds(2);
+
+        /**
+         * 用户OTP记录变更后，该用户的读取固定走主库的时长，应大于从库复制延迟
+         */
+        private Duration stickyWindow = Duration.ofSeconds(5);
+
+        /**
+         * 同时固定走主库的最大用户数
+         */
+        private int stickyCacheSize = 100_000;
+
+        /**
+         * 从库连接信息
+         */
+        @Data
+        public static class Replica {
+
+            /**
+             * JDBC URL
+             */
+            private String url;
+
+            /**
+             * 用户名，为空时使用主库用户名
+             */
+            private String username;
+
+            /**
+             * 密码，为空时使用主库密码
+             */
+            private String password;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.notp.config;
+
+import com.notp.constant.OtpErrorCode;
+import com.notp.metrics.OtpMetrics;
+import com.notp.ratelimit.InMemoryOtpAttemptLimiter;
+import com.notp.ratelimit.OtpAttemptLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * OTP验证尝试限制配置
+ * 未注册其他 {@link OtpAttemptLimiter} 实现时使用进程内实现
+ *
+ * @author sign
+ */
+@Configuration
+public class OtpRateLimitConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(OtpAttemptLimiter.class)
+    public OtpAttemptLimiter otpAttemptLimiter(OtpProperties properties, OtpMetrics otpMetrics) {
+        OtpProperties.RateLimit rateLimit = properties.getRateLimit();
+        if (!rateLimit.isEnabled()) {
+            return new OtpAttemptLimiter() {
+                @Override
+                public OtpErrorCode check(long userId, String clientIp) {
+                    return null;
+                }
+
+                @Override
+                public OtpErrorCode tryAcquire(long userId, String clientIp) {
+                    return null;
+                }
+
+                @Override
+                public void recordFailure(long userId, String clientIp, boolean countUser) {
+                }
+
+                @Override
+                public void recordSuccess(long userId, String clientIp) {
+                }
+            };
+        }
+        return new InMemoryOtpAttemptLimiter(rateLimit, otpMetrics);
+    }
+}
@@ -0,0 +1,28 @@
+package com.notp.config;
+
+import com.notp.replay.InMemoryOtpReplayGuard;
+import com.notp.replay.OtpReplayGuard;
+import com.notp.util.OtpProfile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * OTP防重放配置
+ * 未注册其他 {@link OtpReplayGuard} 实现时使用进程内实现
+ *
+ * @author sign
+ */
+@Configuration
+public class OtpReplayConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(OtpReplayGuard.class)
+    public OtpReplayGuard otpReplayGuard(OtpProperties properties) {
+        OtpProperties.Replay replay = properties.getReplay();
+        if (!replay.isEnabled()) {
+            return (userId, stepStart) -> true;
+        }
+        return new InMemoryOtpReplayGuard(replay.getCapacity(), 1, OtpProfile.MAX_PERIOD);
+    }
+}
@@ -0,0 +1,32 @@
+package com.notp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 虚拟线程模式检查
+ * 项目以Java 17编译，spring.threads.virtual.enabled在JDK 21以下会被忽略；
+ * 以virtual配置在低版本JDK上启动时直接失败，避免误以为已在虚拟线程上运行
+ *
+ * @author sign
+ */
+@Configuration
+@Profile("virtual")
+public class OtpVirtualThreadConfig {
+
+    /**
+     * 虚拟线程要求的最低JDK版本
+     */
+    static final int MIN_FEATURE_VERSION = 21;
+
+    public OtpVirtualThreadConfig() {
+        checkFeatureVersion(Runtime.version().feature());
+    }
+
+    static void checkFeatureVersion(int feature) {
+        if (feature < MIN_FEATURE_VERSION) {
+            throw new IllegalStateException("virtual 配置需要JDK " + MIN_FEATURE_VERSION
+                    + " 及以上，当前JDK版本: " + feature);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.notp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notp.controller.OtpResponseConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Web MVC配置
+ * 验证和状态接口的响应由 {@link OtpResponseConverter} 直接写出，需排在Jackson转换器之前
+ *
+ * @author sign
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class OtpWebConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public OtpWebConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new OtpResponseConverter(objectMapper.getFactory()));
+    }
+}
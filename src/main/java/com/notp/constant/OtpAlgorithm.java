@@ -0,0 +1,47 @@
+package com.notp.constant;
+
+/**
+ * OTP哈希算法枚举
+ *
+ * @author sign
+ */
+public enum OtpAlgorithm {
+
+    SHA1("SHA1", "HmacSHA1"),
+    SHA256("SHA256", "HmacSHA256"),
+    SHA512("SHA512", "HmacSHA512");
+
+    private final String value;
+    private final String macAlgorithm;
+
+    OtpAlgorithm(String value, String macAlgorithm) {
+        this.value = value;
+        this.macAlgorithm = macAlgorithm;
+    }
+
+    /**
+     * otpauth URL及数据库中使用的名称
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * JCE中的Mac算法名
+     */
+    public String getMacAlgorithm() {
+        return macAlgorithm;
+    }
+
+    public static OtpAlgorithm fromValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return SHA512;
+        }
+        for (OtpAlgorithm algorithm : values()) {
+            if (algorithm.value.equalsIgnoreCase(value) || algorithm.macAlgorithm.equalsIgnoreCase(value)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("不支持的OTP算法: " + value);
+    }
+}
@@ -16,6 +16,8 @@ public enum OtpErrorCode {
     DISABLED("1005", "OTP验证已禁用"),
     SECRET_INVALID("1006", "密钥格式无效"),
     QR_GENERATION_FAILED("1007", "二维码生成失败"),
+    CODE_REUSED("1008", "验证码已被使用，请等待下一个验证码"),
+    LOCKED_OUT("1009", "验证失败次数过多，OTP验证已被临时锁定"),
 
     SYSTEM_ERROR("2001", "系统内部错误"),
     DATABASE_ERROR("2002", "数据库操作失败"),
@@ -27,12 +29,22 @@ public enum OtpErrorCode {
 
     UNKNOWN_ERROR("9999", "未知错误");
 
+    private static final OtpErrorCode[] BY_BYTE = new OtpErrorCode[256];
+
+    static {
+        for (OtpErrorCode errorCode : values()) {
+            BY_BYTE[errorCode.byteCode & 0xFF] = errorCode;
+        }
+    }
+
     private final String code;
     private final String message;
+    private final byte byteCode;
 
     OtpErrorCode(String code, String message) {
         this.code = code;
         this.message = message;
+        this.byteCode = (byte) ((code.charAt(0) - '0') << 4 | (code.charAt(3) - '0'));
     }
 
     public String getCode() {
@@ -52,6 +64,18 @@ public enum OtpErrorCode {
         return UNKNOWN_ERROR;
     }
 
+    /**
+     * 单字节表示（二进制协议使用）：高4位为错误码首位，低4位为末位，如 0000→0x00、1001→0x11、2002→0x22、9999→0x99
+     */
+    public byte toByte() {
+        return byteCode;
+    }
+
+    public static OtpErrorCode fromByte(byte value) {
+        OtpErrorCode errorCode = BY_BYTE[value & 0xFF];
+        return errorCode == null ? UNKNOWN_ERROR : errorCode;
+    }
+
     @Override
     public String toString() {
         return "{" +
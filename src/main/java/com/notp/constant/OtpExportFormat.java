@@ -0,0 +1,40 @@
+package com.notp.constant;
+
+/**
+ * OTP配置导出格式枚举
+ *
+ * @author sign
+ */
+public enum OtpExportFormat {
+
+    NDJSON("ndjson", "application/x-ndjson"),
+    CSV("csv", "text/csv");
+
+    private final String value;
+    private final String contentType;
+
+    OtpExportFormat(String value, String contentType) {
+        this.value = value;
+        this.contentType = contentType;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static OtpExportFormat fromValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return NDJSON;
+        }
+        for (OtpExportFormat format : values()) {
+            if (format.value.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的导出格式: " + value);
+    }
+}
@@ -0,0 +1,46 @@
+package com.notp.constant;
+
+/**
+ * 导出时密钥的处理方式枚举
+ *
+ * @author sign
+ */
+public enum OtpSecretMode {
+
+    /**
+     * 不输出密钥
+     */
+    REDACT("redact"),
+
+    /**
+     * 输出Base32明文密钥，需开启 otp.export.allow-plain
+     */
+    PLAIN("plain"),
+
+    /**
+     * 使用导出密钥（otp.export.encryption-key）AES-GCM加密后输出
+     */
+    ENCRYPT("encrypt");
+
+    private final String value;
+
+    OtpSecretMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static OtpSecretMode fromValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return REDACT;
+        }
+        for (OtpSecretMode mode : values()) {
+            if (mode.value.equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("不支持的密钥导出方式: " + value);
+    }
+}
@@ -0,0 +1,44 @@
+package com.notp.constant;
+
+/**
+ * OTP类型枚举
+ *
+ * @author sign
+ */
+public enum OtpType {
+
+    /**
+     * 基于时间（RFC6238）
+     */
+    TOTP("totp"),
+
+    /**
+     * 基于计数器（RFC4226）
+     */
+    HOTP("hotp");
+
+    private final String value;
+
+    OtpType(String value) {
+        this.value = value;
+    }
+
+    /**
+     * otpauth URL及数据库中使用的名称
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public static OtpType fromValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return TOTP;
+        }
+        for (OtpType type : values()) {
+            if (type.value.equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("不支持的OTP类型: " + value);
+    }
+}
@@ -0,0 +1,49 @@
+package com.notp.constant;
+
+/**
+ * 二维码输出格式枚举
+ *
+ * @author sign
+ */
+public enum QrCodeFormat {
+
+    PNG("png", "image/png"),
+    PNG_1BIT("png1", "image/png"),
+    SVG("svg", "image/svg+xml"),
+    MATRIX("matrix", "application/json");
+
+    private final String value;
+    private final String contentType;
+
+    QrCodeFormat(String value, String contentType) {
+        this.value = value;
+        this.contentType = contentType;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 是否与渲染尺寸无关（按模块输出，由客户端缩放）
+     */
+    public boolean isScalable() {
+        return this == SVG || this == MATRIX;
+    }
+
+    public static QrCodeFormat fromValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return PNG;
+        }
+        for (QrCodeFormat format : values()) {
+            if (format.value.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的二维码格式: " + value);
+    }
+}
@@ -1,17 +1,41 @@
 package com.notp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.notp.common.core.domain.AjaxResult;
+import com.notp.config.OtpProperties;
+import com.notp.constant.OtpExportFormat;
+import com.notp.constant.OtpSecretMode;
+import com.notp.constant.QrCodeFormat;
 import com.notp.service.OtpService;
+import com.notp.util.QrCodeUtil;
+import com.notp.vo.OtpBatchVerifyResult;
+import com.notp.vo.OtpExportRecord;
+import com.notp.vo.OtpVerifyRequest;
 import com.notp.vo.OtpVerifyResult;
 import com.notp.vo.OtpInfoVo;
+import com.notp.vo.OtpStatusResponse;
+import com.notp.vo.OtpVerifyResponse;
+import com.notp.vo.QrCodeImage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,33 +46,79 @@ import java.util.Map;
  */
 @Tag(name = "OTP管理", description = "双因素认证相关接口")
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/otp")
 @RequiredArgsConstructor
 @Validated
 public class OtpController {
 
     private final OtpService otpService;
+    private final OtpProperties otpProperties;
+    private final ObjectMapper objectMapper;
 
     /**
      * 生成OTP二维码
+     * 响应带ETag，客户端携带If-None-Match且内容未变化时返回304
      */
     @Operation(summary = "生成OTP二维码", description = "为用户生成OTP双因素认证的二维码和密钥")
     @GetMapping("/qr-code")
-    public AjaxResult generateQRCode(@Parameter(description = "用户ID", required = true)
-                                     @RequestParam @NotNull Long userId) {
+    public ResponseEntity<AjaxResult> generateQRCode(@Parameter(description = "用户ID", required = true)
+                                                     @RequestParam @NotNull Long userId,
+                                                     @Parameter(description = "二维码格式: png/png1/svg/matrix")
+                                                     @RequestParam(required = false) String format,
+                                                     @Parameter(description = "用户未启用时使用的OTP参数模板")
+                                                     @RequestParam(required = false) String profile) {
         try {
             if (userId == null || userId <= 0) {
-                return AjaxResult.error("用户ID不能为空且必须大于0");
+                return ResponseEntity.ok(AjaxResult.error("用户ID不能为空且必须大于0"));
             }
 
-            Map<String, Object> qrData = otpService.generateQRCodeData(userId);
+            QrCodeFormat qrCodeFormat = QrCodeFormat.fromValue(format);
+            Map<String, Object> qrData = otpService.generateQRCodeData(userId, qrCodeFormat, profile);
+            String etag = QrCodeUtil.fingerprint((String) qrData.get("qrCodeUrl"),
+                    QrCodeUtil.QR_CODE_SIZE, qrCodeFormat);
 
-            return AjaxResult.success(qrData);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .eTag(etag)
+                    .body(AjaxResult.success(qrData));
 
         } catch (IllegalArgumentException e) {
-            return AjaxResult.error("参数错误: " + e.getMessage());
+            return ResponseEntity.ok(AjaxResult.error("参数错误: " + e.getMessage()));
         } catch (Exception e) {
-            return AjaxResult.error("生成二维码失败: " + e.getMessage());
+            return ResponseEntity.ok(AjaxResult.error("生成二维码失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取OTP二维码图片
+     * 通过format参数选择输出格式，响应带ETag，客户端携带If-None-Match且图片未变化时返回304
+     */
+    @Operation(summary = "获取OTP二维码图片", description = "返回已启用用户的二维码：PNG、1位PNG、SVG或模块位图JSON")
+    @GetMapping("/qr-code/image")
+    public ResponseEntity<byte[]> getQRCodeImage(@Parameter(description = "用户ID", required = true)
+                                                 @RequestParam @NotNull Long userId,
+                                                 @Parameter(description = "图片边长（像素）")
+                                                 @RequestParam(defaultValue = "400") int size,
+                                                 @Parameter(description = "二维码格式: png/png1/svg/matrix")
+                                                 @RequestParam(required = false) String format) {
+        try {
+            if (userId == null || userId <= 0 || size < 100 || size > 1000) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            QrCodeImage image = otpService.getQrCodeImage(userId, size, QrCodeFormat.fromValue(format));
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(image.getFormat().getContentType()))
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .eTag(image.getFingerprint())
+                    .body(image.getContent());
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
         }
     }
 
@@ -125,40 +195,171 @@ public class OtpController {
      */
     @Operation(summary = "验证OTP", description = "验证用户输入的OTP验证码")
     @PostMapping("/verify")
-    public AjaxResult verifyOtp(@Parameter(description = "用户ID", required = true)
-                             @RequestParam @NotNull Long userId,
-                             @Parameter(description = "6位验证码", required = true)
-                             @RequestParam String code) {
+    public Object verifyOtp(@Parameter(description = "用户ID", required = true)
+                            @RequestParam @NotNull Long userId,
+                            @Parameter(description = "6位验证码", required = true)
+                            @RequestParam String code,
+                            HttpServletRequest request) {
         try {
             if (userId == null || userId <= 0) {
                 return AjaxResult.error("用户ID不能为空且必须大于0");
             }
 
-            OtpVerifyResult result = otpService.verifyOtp(userId, code);
+            OtpVerifyResult result = otpService.verifyOtp(userId, code, request.getRemoteAddr());
+
+            // 与 AjaxResult.success(data) 格式相同，由 OtpResponseConverter 直接写出
+            return OtpVerifyResponse.of(userId, result);
+
+        } catch (IllegalArgumentException e) {
+            return AjaxResult.error("参数错误: " + e.getMessage());
+        } catch (Exception e) {
+            return AjaxResult.error("验证OTP失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 批量验证OTP验证码
+     */
+    @Operation(summary = "批量验证OTP", description = "一次验证多个用户的OTP验证码，结果顺序与请求一致")
+    @PostMapping("/verify/batch")
+    public AjaxResult verifyOtpBatch(@RequestBody List<OtpVerifyRequest> requests) {
+        try {
+            if (requests == null || requests.isEmpty()) {
+                return AjaxResult.error("验证请求列表不能为空");
+            }
+
+            List<OtpBatchVerifyResult> results = otpService.verifyOtpBatch(requests);
 
             Map<String, Object> data = new HashMap<>();
-            data.put("valid", result.isSuccess());
-            data.put("userId", userId);
+            data.put("results", results);
+            data.put("total", results.size());
             data.put("timestamp", System.currentTimeMillis());
-            data.put("code", result.getCode());
-            data.put("message", result.getMessage());
 
             return AjaxResult.success(data);
 
         } catch (IllegalArgumentException e) {
             return AjaxResult.error("参数错误: " + e.getMessage());
         } catch (Exception e) {
-            return AjaxResult.error("验证OTP失败: " + e.getMessage());
+            return AjaxResult.error("批量验证OTP失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 批量启用OTP
+     * 以NDJSON流式返回，每行一个用户的结果（含新密钥），每个事务块提交后立即写出
+     */
+    @Operation(summary = "批量启用OTP", description = "为大批用户启用OTP，按块事务写入，结果以NDJSON逐行返回")
+    @PostMapping("/enroll/bulk")
+    public ResponseEntity<?> enrollOtpBulk(@RequestBody List<Long> userIds,
+                                           @Parameter(description = "OTP参数模板，不传使用默认模板")
+                                           @RequestParam(required = false) String profile) {
+        if (userIds == null || userIds.isEmpty()) {
+            return ResponseEntity.badRequest().body(AjaxResult.error("用户ID列表不能为空"));
+        }
+        if (profile != null && !profile.isEmpty() && !otpProperties.getProfiles().containsKey(profile)) {
+            return ResponseEntity.badRequest().body(AjaxResult.error("参数错误: 未知的OTP参数模板: " + profile));
+        }
+        if (userIds.size() > otpProperties.getEnroll().getMaxSize()) {
+            return ResponseEntity.badRequest().body(
+                    AjaxResult.error("参数错误: 单次最多启用" + otpProperties.getEnroll().getMaxSize() + "个用户"));
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                otpService.enrollOtpBulk(userIds, profile, result -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 流式导出OTP配置
+     * 按id顺序输出，中断后以最后收到的id作为afterId续传
+     */
+    @Operation(summary = "导出OTP配置", description = "按id顺序流式导出OTP配置（NDJSON或CSV），支持从指定id续传")
+    @GetMapping("/export")
+    public ResponseEntity<?> exportOtp(@Parameter(description = "从id大于该值的记录开始导出")
+                                       @RequestParam(defaultValue = "0") long afterId,
+                                       @Parameter(description = "最多导出行数，不传表示全部")
+                                       @RequestParam(required = false) Integer limit,
+                                       @Parameter(description = "导出格式：ndjson（默认）、csv")
+                                       @RequestParam(required = false) String format,
+                                       @Parameter(description = "密钥处理方式：redact（默认）、plain、encrypt")
+                                       @RequestParam(required = false) String secret) {
+        OtpExportFormat exportFormat;
+        OtpSecretMode secretMode;
+        try {
+            exportFormat = OtpExportFormat.fromValue(format);
+            secretMode = OtpSecretMode.fromValue(secret);
+            otpService.validateExport(limit, secretMode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(AjaxResult.error("参数错误: " + e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> {
+            if (exportFormat == OtpExportFormat.CSV) {
+                out.write("id,user_id,secret,otp_type,algorithm,digits,period,counter,enabled,create_time,update_time\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+            }
+            try {
+                otpService.exportOtp(afterId, limit, secretMode, record -> {
+                    try {
+                        if (exportFormat == OtpExportFormat.CSV) {
+                            writeCsvLine(out, record);
+                        } else {
+                            out.write(objectMapper.writeValueAsBytes(record));
+                            out.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
+    }
+
+    /**
+     * 写出一行CSV，各字段均不含逗号和引号，无需转义
+     */
+    private static void writeCsvLine(OutputStream out, OtpExportRecord record) throws IOException {
+        String line = record.getId() + "," + record.getUserId() + ","
+                + (record.getSecret() == null ? "" : record.getSecret()) + ","
+                + record.getOtpType() + "," + record.getAlgorithm() + "," + record.getDigits() + ","
+                + record.getPeriod() + "," + record.getCounter() + ","
+                + (Boolean.TRUE.equals(record.getEnabled()) ? 1 : 0) + ","
+                + csvTime(record.getCreateTime()) + "," + csvTime(record.getUpdateTime()) + "\n";
+        out.write(line.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String csvTime(Date time) {
+        return time == null ? "" : time.toInstant().toString();
+    }
+
     /**
      * 获取OTP状态
      */
     @Operation(summary = "获取OTP状态", description = "获取用户当前的OTP启用状态")
     @GetMapping("/status")
-    public AjaxResult getOtpStatus(@Parameter(description = "用户ID", required = true)
-                                  @RequestParam @NotNull Long userId) {
+    public Object getOtpStatus(@Parameter(description = "用户ID", required = true)
+                               @RequestParam @NotNull Long userId) {
         try {
             if (userId == null || userId <= 0) {
                 return AjaxResult.error("用户ID不能为空且必须大于0");
@@ -166,12 +367,8 @@ public class OtpController {
 
             boolean enabled = otpService.isOtpEnabled(userId);
 
-            Map<String, Object> data = new HashMap<>();
-            data.put("enabled", enabled);
-            data.put("userId", userId);
-            data.put("timestamp", System.currentTimeMillis());
-
-            return AjaxResult.success(data);
+            // 与 AjaxResult.success(data) 格式相同，由 OtpResponseConverter 直接写出
+            return OtpStatusResponse.of(userId, enabled);
 
         } catch (IllegalArgumentException e) {
             return AjaxResult.error("参数错误: " + e.getMessage());
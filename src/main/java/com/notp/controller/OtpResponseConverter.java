@@ -0,0 +1,246 @@
+package com.notp.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.notp.common.constant.HttpStatus;
+import com.notp.common.core.domain.AjaxResult;
+import com.notp.constant.OtpErrorCode;
+import com.notp.vo.OtpStatusResponse;
+import com.notp.vo.OtpVerifyResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 验证和状态接口的响应写出
+ * 输出与 AjaxResult.success(Map) 经Jackson序列化的结果逐字节一致（含字段顺序），但不经过Map和反射：
+ * 启动时为各验证结果预先生成到 userId 为止的UTF-8前缀，请求时只追加用户ID和时间戳两个数字，
+ * 整个响应在一个数组中拼好后一次写出并带上Content-Length。
+ * 消息不是预置文案时退回JsonGenerator流式写出。
+ *
+ * @author sign
+ */
+public class OtpResponseConverter extends AbstractHttpMessageConverter<Object> {
+
+    private static final String SUCCESS_CODE = "0000";
+    private static final String SUCCESS_MESSAGE = "OTP验证成功";
+    private static final String ENVELOPE_MESSAGE = "操作成功";
+    private static final byte[] TIMESTAMP_FIELD = ascii(",\"timestamp\":");
+    private static final byte[] ENABLED_TRUE_FIELD = ascii(",\"enabled\":true");
+    private static final byte[] ENABLED_FALSE_FIELD = ascii(",\"enabled\":false");
+    private static final byte[] CLOSE = ascii("}}");
+    private static final int MAX_NUMBERS_LENGTH = 40;
+
+    private final JsonFactory jsonFactory;
+    private final Map<String, Prefix> verifyPrefixes = new HashMap<>();
+    private final byte[] statusPrefix;
+
+    public OtpResponseConverter(JsonFactory jsonFactory) {
+        super(MediaType.APPLICATION_JSON);
+        this.jsonFactory = jsonFactory;
+        for (OtpErrorCode errorCode : OtpErrorCode.values()) {
+            verifyPrefixes.put(errorCode.getCode(), new Prefix(false, errorCode.getMessage(),
+                    prefix(false, errorCode.getCode(), errorCode.getMessage())));
+        }
+        verifyPrefixes.put(SUCCESS_CODE, new Prefix(true, SUCCESS_MESSAGE, prefix(true, SUCCESS_CODE, SUCCESS_MESSAGE)));
+        this.statusPrefix = fieldPrefix(render(generator -> {
+            startEnvelope(generator);
+            generator.writeFieldName("userId");
+        }));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == OtpVerifyResponse.class || clazz == OtpStatusResponse.class;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("不支持读取" + clazz.getSimpleName(), inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        Buffer buffer = body instanceof OtpVerifyResponse verify ? verify(verify) : status((OtpStatusResponse) body);
+        outputMessage.getHeaders().setContentLength(buffer.length);
+        outputMessage.getBody().write(buffer.bytes, 0, buffer.length);
+    }
+
+    @Override
+    protected Long getContentLength(Object body, MediaType contentType) {
+        // 长度在writeInternal中拼好响应后设置
+        return null;
+    }
+
+    private Buffer verify(OtpVerifyResponse response) {
+        Prefix prefix = verifyPrefixes.get(response.code());
+        if (prefix == null || response.userId() == null || prefix.valid() != response.valid()
+                || !prefix.message().equals(response.message())) {
+            return new Buffer(render(generator -> writeVerify(generator, response)), 0);
+        }
+        Buffer buffer = new Buffer(prefix.bytes(), TIMESTAMP_FIELD.length + CLOSE.length);
+        buffer.writeLong(response.userId());
+        buffer.write(TIMESTAMP_FIELD);
+        buffer.writeLong(response.timestamp());
+        buffer.write(CLOSE);
+        return buffer;
+    }
+
+    private Buffer status(OtpStatusResponse response) {
+        if (response.userId() == null) {
+            return new Buffer(render(generator -> writeStatus(generator, response)), 0);
+        }
+        byte[] enabled = response.enabled() ? ENABLED_TRUE_FIELD : ENABLED_FALSE_FIELD;
+        Buffer buffer = new Buffer(statusPrefix, enabled.length + TIMESTAMP_FIELD.length + CLOSE.length);
+        buffer.writeLong(response.userId());
+        buffer.write(enabled);
+        buffer.write(TIMESTAMP_FIELD);
+        buffer.writeLong(response.timestamp());
+        buffer.write(CLOSE);
+        return buffer;
+    }
+
+    private byte[] prefix(boolean valid, String code, String message) {
+        return fieldPrefix(render(generator -> {
+            startEnvelope(generator);
+            generator.writeBooleanField("valid", valid);
+            generator.writeStringField("code", code);
+            generator.writeStringField("message", message);
+            generator.writeFieldName("userId");
+        }));
+    }
+
+    /**
+     * JsonGenerator在写出值时才输出字段名后的冒号，前缀停在字段名处，需要补上
+     */
+    private static byte[] fieldPrefix(byte[] rendered) {
+        byte[] prefix = Arrays.copyOf(rendered, rendered.length + 1);
+        prefix[rendered.length] = ':';
+        return prefix;
+    }
+
+    private void writeVerify(JsonGenerator generator, OtpVerifyResponse response) throws IOException {
+        startEnvelope(generator);
+        generator.writeBooleanField("valid", response.valid());
+        generator.writeStringField("code", response.code());
+        generator.writeStringField("message", response.message());
+        writeUserId(generator, response.userId());
+        generator.writeNumberField("timestamp", response.timestamp());
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private void writeStatus(JsonGenerator generator, OtpStatusResponse response) throws IOException {
+        startEnvelope(generator);
+        writeUserId(generator, response.userId());
+        generator.writeBooleanField("enabled", response.enabled());
+        generator.writeNumberField("timestamp", response.timestamp());
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * 与AjaxResult（HashMap）序列化后的字段顺序一致：msg、code、data
+     */
+    private static void startEnvelope(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField(AjaxResult.MSG_TAG, ENVELOPE_MESSAGE);
+        generator.writeNumberField(AjaxResult.CODE_TAG, HttpStatus.SUCCESS);
+        generator.writeFieldName(AjaxResult.DATA_TAG);
+        generator.writeStartObject();
+    }
+
+    private static void writeUserId(JsonGenerator generator, Long userId) throws IOException {
+        generator.writeFieldName("userId");
+        if (userId == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(userId);
+        }
+    }
+
+    private byte[] render(JsonWriter writer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            // 前缀停在未闭合的对象中间，关闭时不能自动补全
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            writer.write(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(i);
+        }
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * 预生成的验证响应前缀及其对应的结果
+     */
+    private record Prefix(boolean valid, String message, byte[] bytes) {
+    }
+
+    /**
+     * 以预生成前缀开头的响应缓冲区，数字直接按ASCII写入（两个long最多40字节）
+     */
+    private static final class Buffer {
+
+        private final byte[] bytes;
+        private int length;
+
+        Buffer(byte[] prefix, int extra) {
+            this.bytes = extra == 0 ? prefix : Arrays.copyOf(prefix, prefix.length + extra + MAX_NUMBERS_LENGTH);
+            this.length = prefix.length;
+        }
+
+        void write(byte[] value) {
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        void writeLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                write(ascii(Long.toString(value)));
+                return;
+            }
+            if (value < 0) {
+                bytes[length++] = '-';
+                value = -value;
+            }
+            int digits = 1;
+            for (long v = value; v >= 10; v /= 10) {
+                digits++;
+            }
+            for (int i = length + digits - 1; i >= length; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+    }
+}
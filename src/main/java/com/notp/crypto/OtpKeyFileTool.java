@@ -0,0 +1,67 @@
+package com.notp.crypto;
+
+import com.notp.util.AesGcmUtil;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * OTP密钥文件生成工具
+ * 生成一个新的256位数据密钥，用主密钥包裹后输出为密钥文件中的一行；
+ * 不传主密钥时同时生成一个新主密钥
+ *
+ * <pre>
+ * java -cp target/classes com.notp.crypto.OtpKeyFileTool &lt;版本号&gt; [主密钥Base64]
+ * </pre>
+ *
+ * @author sign
+ */
+public class OtpKeyFileTool {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("用法: OtpKeyFileTool <版本号> [主密钥Base64]");
+            System.exit(1);
+        }
+        SecureRandom random = new SecureRandom();
+        int version = Integer.parseInt(args[0]);
+
+        String masterKey;
+        if (args.length > 1) {
+            masterKey = args[1];
+        } else {
+            byte[] bytes = new byte[32];
+            random.nextBytes(bytes);
+            masterKey = Base64.getEncoder().encodeToString(bytes);
+            System.out.println("# 新主密钥（配置到 otp.crypto.master-key，不要写入密钥文件）: " + masterKey);
+        }
+
+        byte[] dataKey = new byte[32];
+        random.nextBytes(dataKey);
+        System.out.println(wrapKeyLine(AesGcmUtil.parseKey(masterKey), version, dataKey));
+    }
+
+    /**
+     * 用主密钥包裹一个数据密钥，生成密钥文件中的一行
+     *
+     * @param masterKey 主密钥
+     * @param version 数据密钥版本（大于0）
+     * @param dataKey 数据密钥（16/24/32字节）
+     * @return 版本号=Base64(包裹后的数据密钥)
+     */
+    public static String wrapKeyLine(SecretKey masterKey, int version, byte[] dataKey) {
+        if (version <= 0) {
+            throw new IllegalArgumentException("数据密钥版本必须大于0: " + version);
+        }
+        return version + "=" + AesGcmUtil.encryptToBase64(masterKey, dataKey, wrapAad(version));
+    }
+
+    /**
+     * 包裹数据密钥时的附加认证数据，绑定版本号，防止不同版本的密钥行互换
+     */
+    static byte[] wrapAad(int version) {
+        return ("otp-data-key:" + version).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,157 @@
+package com.notp.crypto;
+
+import com.notp.config.OtpProperties;
+import com.notp.entity.SysUserOtp;
+import com.notp.util.AesGcmUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OTP密钥静态加密（信封加密）
+ * 密钥文件按版本保存被主密钥包裹的数据密钥，每行 版本号=Base64(包裹后的数据密钥)，版本号最大者为当前版本；
+ * 数据密钥首次使用时解包并按版本缓存。sys_user_otp.secret 保存用数据密钥AES-GCM加密后的密文，
+ * key_version 记录所用版本，0表示明文（未配置密钥文件或尚未轮换的历史数据）。
+ * 验证路径上解码后的密钥由 OtpKeyCache 缓存，只有缓存未命中时才解密一次。
+ *
+ * @author sign
+ */
+@Slf4j
+@Component
+public class OtpSecretCipher {
+
+    /**
+     * 明文存储的版本号
+     */
+    public static final int PLAINTEXT_VERSION = 0;
+
+    private final SecretKey masterKey;
+    private final Map<Integer, byte[]> wrappedKeys;
+    private final Map<Integer, SecretKey> dataKeys = new ConcurrentHashMap<>();
+    private final int activeVersion;
+
+    public OtpSecretCipher(OtpProperties properties) {
+        OtpProperties.Crypto config = properties.getCrypto();
+        if (config.getKeyFile() == null || config.getKeyFile().isBlank()) {
+            this.masterKey = null;
+            this.wrappedKeys = Collections.emptyMap();
+            this.activeVersion = PLAINTEXT_VERSION;
+            log.warn("未配置OTP密钥文件（otp.crypto.key-file），OTP密钥将以明文存储");
+            return;
+        }
+        if (config.getMasterKey() == null || config.getMasterKey().isBlank()) {
+            throw new IllegalStateException("已配置OTP密钥文件但未配置主密钥（otp.crypto.master-key）");
+        }
+        this.masterKey = AesGcmUtil.parseKey(config.getMasterKey());
+        TreeMap<Integer, byte[]> keys = readKeyFile(Path.of(config.getKeyFile()));
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("OTP密钥文件中没有数据密钥: " + config.getKeyFile());
+        }
+        this.wrappedKeys = keys;
+        this.activeVersion = keys.lastKey();
+        // 启动时解包当前版本，密钥文件或主密钥错误时尽早失败
+        dataKey(activeVersion);
+        log.info("OTP密钥静态加密已启用，当前数据密钥版本: {}", activeVersion);
+    }
+
+    /**
+     * 当前用于加密的数据密钥版本，未启用加密时为0
+     */
+    public int getActiveVersion() {
+        return activeVersion;
+    }
+
+    /**
+     * 记录是否已使用当前版本加密
+     */
+    public boolean isCurrent(SysUserOtp userOtp) {
+        return userOtp.getKeyVersion() != null && userOtp.getKeyVersion() == activeVersion;
+    }
+
+    /**
+     * 用当前版本加密Base32密钥，写入记录的secret和keyVersion
+     *
+     * @param userOtp 记录，须已设置userId
+     * @param secret Base32明文密钥
+     */
+    public void seal(SysUserOtp userOtp, String secret) {
+        if (activeVersion == PLAINTEXT_VERSION) {
+            userOtp.setSecret(secret);
+        } else {
+            userOtp.setSecret(AesGcmUtil.encryptToBase64(dataKey(activeVersion),
+                    secret.getBytes(StandardCharsets.US_ASCII), aad(userOtp.getUserId())));
+        }
+        userOtp.setKeyVersion(activeVersion);
+    }
+
+    /**
+     * 解密记录中的密钥
+     *
+     * @param userOtp 记录
+     * @return Base32明文密钥
+     */
+    public String open(SysUserOtp userOtp) {
+        Integer version = userOtp.getKeyVersion();
+        if (version == null || version == PLAINTEXT_VERSION) {
+            return userOtp.getSecret();
+        }
+        byte[] secret = AesGcmUtil.decryptFromBase64(dataKey(version), userOtp.getSecret(), aad(userOtp.getUserId()));
+        return new String(secret, StandardCharsets.US_ASCII);
+    }
+
+    private SecretKey dataKey(int version) {
+        SecretKey key = dataKeys.get(version);
+        if (key != null) {
+            return key;
+        }
+        byte[] wrapped = wrappedKeys.get(version);
+        if (wrapped == null) {
+            throw new IllegalStateException("OTP密钥文件中不存在数据密钥版本: " + version);
+        }
+        key = new SecretKeySpec(AesGcmUtil.decrypt(masterKey, wrapped, OtpKeyFileTool.wrapAad(version)), "AES");
+        dataKeys.put(version, key);
+        return key;
+    }
+
+    private static TreeMap<Integer, byte[]> readKeyFile(Path file) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            throw new IllegalStateException("读取OTP密钥文件失败: " + file, e);
+        }
+        TreeMap<Integer, byte[]> keys = new TreeMap<>();
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int index = line.indexOf('=');
+            if (index <= 0) {
+                throw new IllegalStateException("OTP密钥文件格式错误，应为 版本号=Base64: " + line);
+            }
+            int version = Integer.parseInt(line.substring(0, index).trim());
+            if (version <= PLAINTEXT_VERSION) {
+                throw new IllegalStateException("数据密钥版本必须大于0: " + version);
+            }
+            keys.put(version, Base64.getDecoder().decode(line.substring(index + 1).trim()));
+        }
+        return keys;
+    }
+
+    private static byte[] aad(Long userId) {
+        return String.valueOf(userId).getBytes(StandardCharsets.US_ASCII);
+    }
+}
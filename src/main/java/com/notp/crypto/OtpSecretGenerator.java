@@ -0,0 +1,171 @@
+package com.notp.crypto;
+
+import com.notp.config.OtpProperties;
+import com.notp.util.TotpUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * OTP密钥生成
+ * 后台线程预先生成一批密钥放入池中，启用OTP时直接取用，批量启用的突发请求不会等待熵源。
+ * DRBG实例在启动时创建并播种（只从系统熵源播种一次），放在固定大小的无锁池中按线程借还，
+ * 池中密钥用完时调用线程借一个DRBG现场生成，借不到时使用共享实例（内部加锁）。
+ * 不使用ThreadLocal：虚拟线程每个请求一个线程，ThreadLocal会让每次现场生成都新建并播种DRBG。
+ * 池中余量低于补充阈值时唤醒后台线程补满，后台线程使用自己的DRBG。
+ *
+ * @author sign
+ */
+@Slf4j
+@Component
+public class OtpSecretGenerator implements SmartLifecycle {
+
+    /**
+     * 借出/归还DRBG时最多探测的槽位数
+     */
+    private static final int DRBG_PROBES = 4;
+
+    private final OtpProperties.SecretPool config;
+    private final BlockingQueue<String> pool;
+    private final AtomicReferenceArray<SecureRandom> drbgs;
+    private final int drbgMask;
+    private final SecureRandom sharedDrbg = newDrbg();
+    private final Counter missCounter;
+
+    private volatile boolean running;
+    private Thread refiller;
+
+    public OtpSecretGenerator(OtpProperties properties, MeterRegistry registry) {
+        this.config = properties.getSecretPool();
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, config.getSize()));
+        int slots = Integer.highestOneBit(Math.max(8, Runtime.getRuntime().availableProcessors() * 2) - 1) << 1;
+        this.drbgs = new AtomicReferenceArray<>(slots);
+        this.drbgMask = slots - 1;
+        for (int i = 0; i < slots; i++) {
+            drbgs.set(i, newDrbg());
+        }
+        Gauge.builder("otp.secret.pool.depth", pool, BlockingQueue::size)
+                .description("预生成密钥池中可用的密钥数")
+                .register(registry);
+        this.missCounter = Counter.builder("otp.secret.pool.misses")
+                .description("密钥池为空时现场生成密钥的次数")
+                .register(registry);
+    }
+
+    /**
+     * 获取一个新的Base32密钥，优先从池中取用
+     *
+     * @return Base32编码的密钥
+     */
+    public String generate() {
+        String secret = pool.poll();
+        if (secret == null) {
+            secret = generateWithPooledDrbg();
+            if (running) {
+                missCounter.increment();
+            }
+        }
+        Thread thread = refiller;
+        if (thread != null && pool.size() < config.getRefillThreshold()) {
+            LockSupport.unpark(thread);
+        }
+        return secret;
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        running = true;
+        refiller = new Thread(this::refillLoop, "otp-secret-refill");
+        refiller.setDaemon(true);
+        refiller.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = refiller;
+        refiller = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 停止后不再保留已生成的密钥
+        pool.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 借一个DRBG现场生成密钥
+     */
+    private String generateWithPooledDrbg() {
+        int slot = slot();
+        for (int i = 0; i < DRBG_PROBES; i++) {
+            int index = (slot + i) & drbgMask;
+            SecureRandom random = drbgs.get(index);
+            if (random != null && drbgs.compareAndSet(index, random, null)) {
+                try {
+                    return TotpUtil.generateSecret(random);
+                } finally {
+                    drbgs.set(index, random);
+                }
+            }
+        }
+        // 附近的实例都已借出，DRBG本身线程安全，使用共享实例
+        return TotpUtil.generateSecret(sharedDrbg);
+    }
+
+    /**
+     * 按线程ID散列选择起始槽位，与 {@link com.notp.util.TotpEngine} 相同
+     */
+    private static int slot() {
+        long id = Thread.currentThread().getId();
+        return (int) (id * 0x9E3779B97F4A7C15L >>> 40);
+    }
+
+    private void refillLoop() {
+        SecureRandom random = newDrbg();
+        while (running) {
+            while (running && pool.remainingCapacity() > 0) {
+                pool.offer(TotpUtil.generateSecret(random));
+            }
+            if (running) {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /**
+     * 创建DRBG实例（256位安全强度，无预测抵抗，不在每次取随机数时重新读取熵源）
+     */
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG",
+                    DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+        } catch (NoSuchAlgorithmException | IllegalArgumentException e) {
+            log.warn("DRBG不可用，使用默认SecureRandom: {}", e.getMessage());
+            return new SecureRandom();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.notp.crypto;
+
+import com.notp.config.OtpProperties;
+import com.notp.entity.SysUserOtp;
+import com.notp.mapper.SysUserOtpMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * OTP密钥后台重新加密任务
+ * 按主键顺序分批把数据密钥版本不是当前版本的记录（含明文记录）重新加密为当前版本，
+ * 每批一个事务，写回时校验密钥未被并发修改。
+ * 各节点缓存的是解码后的密钥，重新加密不改变密钥本身，因此不广播失效事件，轮换期间缓存保持有效。
+ *
+ * @author sign
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OtpSecretRotationJob {
+
+    private final SysUserOtpMapper userOtpMapper;
+    private final OtpSecretCipher otpSecretCipher;
+    private final OtpProperties otpProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(initialDelayString = "${otp.crypto.rotation.interval:10m}",
+            fixedDelayString = "${otp.crypto.rotation.interval:10m}")
+    public void rotate() {
+        OtpProperties.Crypto.Rotation config = otpProperties.getCrypto().getRotation();
+        int activeVersion = otpSecretCipher.getActiveVersion();
+        if (!config.isEnabled() || activeVersion == OtpSecretCipher.PLAINTEXT_VERSION) {
+            return;
+        }
+
+        long afterId = 0;
+        int rotated = 0;
+        for (int batch = 0; batch < config.getMaxBatches(); batch++) {
+            long cursor = afterId;
+            List<SysUserOtp> rows = userOtpMapper.selectStaleKeyVersion(activeVersion, cursor, config.getBatchSize());
+            if (rows.isEmpty()) {
+                break;
+            }
+            Integer updated = transactionTemplate.execute(status -> {
+                int count = 0;
+                for (SysUserOtp row : rows) {
+                    count += reencrypt(row);
+                }
+                return count;
+            });
+            rotated += updated == null ? 0 : updated;
+            afterId = rows.get(rows.size() - 1).getId();
+            if (rows.size() < config.getBatchSize()) {
+                break;
+            }
+        }
+        if (rotated > 0) {
+            log.info("OTP密钥重新加密完成，本次处理{}条，当前数据密钥版本: {}", rotated, activeVersion);
+        }
+    }
+
+    private int reencrypt(SysUserOtp row) {
+        String secret;
+        try {
+            secret = otpSecretCipher.open(row);
+        } catch (RuntimeException e) {
+            log.error("OTP密钥解密失败，跳过重新加密，记录id: {}，版本: {}", row.getId(), row.getKeyVersion(), e);
+            return 0;
+        }
+        String oldSecret = row.getSecret();
+        int oldKeyVersion = row.getKeyVersion() == null ? OtpSecretCipher.PLAINTEXT_VERSION : row.getKeyVersion();
+        otpSecretCipher.seal(row, secret);
+        return userOtpMapper.updateSecretIfUnchanged(row.getId(), row.getSecret(), row.getKeyVersion(),
+                oldSecret, oldKeyVersion);
+    }
+}
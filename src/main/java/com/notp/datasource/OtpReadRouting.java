@@ -0,0 +1,139 @@
+package com.notp.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notp.config.OtpProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * OTP查询的读写分离入口
+ * 未启用从库路由时直接执行查询。启用后，查询在以下情况走主库，其余走健康的从库：
+ * 处于事务中（连接已绑定到事务）；用户的OTP记录在 otp.datasource.sticky-window 内被本节点写入或收到过失效事件（读己之写）。
+ * 从库连接失败时摘除该从库并在主库上重试一次。
+ *
+ * @author sign
+ */
+@Component
+public class OtpReadRouting {
+
+    /**
+     * 路由数据源，未启用读写分离时为null
+     */
+    private final OtpRoutingDataSource routingDataSource;
+    private final Cache<Long, Boolean> stickyUsers;
+
+    public OtpReadRouting(ObjectProvider<OtpRoutingDataSource> routingDataSource, OtpProperties properties) {
+        this.routingDataSource = routingDataSource.getIfAvailable();
+        OtpProperties.Datasource config = properties.getDatasource();
+        this.stickyUsers = Caffeine.newBuilder()
+                .maximumSize(config.getStickyCacheSize())
+                .expireAfterWrite(config.getStickyWindow())
+                .build();
+    }
+
+    /**
+     * 读取单个用户的OTP记录
+     *
+     * @param userId 用户ID
+     * @param query 查询
+     * @return 查询结果
+     */
+    public <T> T read(Long userId, Supplier<T> query) {
+        return read(userId != null && stickyUsers.getIfPresent(userId) != null, query);
+    }
+
+    /**
+     * 读取多个用户的OTP记录，其中任一用户需要读己之写时整批走主库
+     *
+     * @param userIds 用户ID
+     * @param query 查询
+     * @return 查询结果
+     */
+    public <T> T read(Collection<? extends Long> userIds, Supplier<T> query) {
+        boolean sticky = false;
+        if (stickyUsers.estimatedSize() > 0) {
+            for (Long userId : userIds) {
+                if (userId != null && stickyUsers.getIfPresent(userId) != null) {
+                    sticky = true;
+                    break;
+                }
+            }
+        }
+        return read(sticky, query);
+    }
+
+    /**
+     * 用户的OTP记录已写入主库，之后一段时间内该用户的读取走主库
+     * 处于事务中时，提交后重新开始计时
+     *
+     * @param userId 用户ID
+     */
+    public void markWritten(Long userId) {
+        if (userId == null || routingDataSource == null) {
+            return;
+        }
+        stickyUsers.put(userId, Boolean.TRUE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stickyUsers.put(userId, Boolean.TRUE);
+                }
+            });
+        }
+    }
+
+    private <T> T read(boolean sticky, Supplier<T> query) {
+        // 事务中沿用已绑定到事务的主库连接
+        if (routingDataSource == null || sticky || ReadRoutingContext.get() != null
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return query.get();
+        }
+        ReadRoutingContext.set(ReadRoutingContext.REPLICA);
+        try {
+            return query.get();
+        } catch (DataAccessException e) {
+            String replica = ReadRoutingContext.get();
+            if (!routingDataSource.isReplica(replica) || !isConnectionFailure(e)) {
+                throw e;
+            }
+            routingDataSource.markDown(replica, e);
+            ReadRoutingContext.set(ReadRoutingContext.PRIMARY);
+            return query.get();
+        } finally {
+            ReadRoutingContext.clear();
+        }
+    }
+
+    /**
+     * 是否为连接层面的失败（取不到连接、连接中断），SQL本身的错误在主库上重试也不会成功
+     * MyBatis把取连接失败包装为 MyBatisSystemException，需要沿异常链查找
+     */
+    private static boolean isConnectionFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException || cause instanceof RecoverableDataAccessException
+                    || cause instanceof TransientDataAccessResourceException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLNonTransientConnectionException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
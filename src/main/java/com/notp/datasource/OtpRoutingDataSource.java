@@ -0,0 +1,184 @@
+package com.notp.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 主从路由数据源
+ * 默认使用主库；线程标记为从库读取时在健康的从库间轮询，没有健康从库时回到主库。
+ * 从库健康状态由专用线程定时检查（不与其他定时任务共用调度线程，过滤器重建或密钥轮换期间检查照常进行），
+ * 读取时连接失败的从库立即摘除，待下次检查通过后恢复。
+ *
+ * @author sign
+ */
+@Slf4j
+public class OtpRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final Map<String, DataSource> replicas;
+    private final Duration healthCheckInterval;
+    private final int healthCheckTimeoutSeconds;
+    private final Map<String, Boolean> replicaUp = new ConcurrentHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter failoverCounter;
+    private volatile String[] healthyReplicas;
+    private ScheduledExecutorService healthChecker;
+
+    public OtpRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration healthCheckInterval,
+                                Duration healthCheckTimeout, MeterRegistry registry) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.healthCheckInterval = healthCheckInterval;
+        this.healthCheckTimeoutSeconds = (int) Math.max(1, healthCheckTimeout.toSeconds());
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(ReadRoutingContext.PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        // 首次检查前假定从库可用，连接失败时再摘除
+        replicas.keySet().forEach(name -> replicaUp.put(name, true));
+        this.healthyReplicas = replicas.keySet().toArray(new String[0]);
+        for (String name : replicas.keySet()) {
+            Gauge.builder("otp.datasource.replica.up", replicaUp, up -> Boolean.TRUE.equals(up.get(name)) ? 1 : 0)
+                    .description("从库是否健康（1健康，0已摘除）")
+                    .tag("replica", name)
+                    .register(registry);
+        }
+        this.failoverCounter = Counter.builder("otp.datasource.replica.failovers")
+                .description("从库读取失败后改由主库重试的次数")
+                .register(registry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        healthChecker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "otp-replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, healthCheckInterval.toMillis());
+        healthChecker.scheduleWithFixedDelay(this::checkReplicasQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = ReadRoutingContext.get();
+        if (key == null || ReadRoutingContext.PRIMARY.equals(key)) {
+            return ReadRoutingContext.PRIMARY;
+        }
+        // 同一次读取内多次取连接时沿用已选中的从库
+        if (!ReadRoutingContext.REPLICA.equals(key) && Boolean.TRUE.equals(replicaUp.get(key))) {
+            return key;
+        }
+        String[] healthy = healthyReplicas;
+        String selected = healthy.length == 0
+                ? ReadRoutingContext.PRIMARY : healthy[Math.floorMod(nextReplica.getAndIncrement(), healthy.length)];
+        ReadRoutingContext.set(selected);
+        return selected;
+    }
+
+    /**
+     * 从库读取失败，摘除该从库直到下次健康检查通过
+     *
+     * @param name 从库名称
+     */
+    void markDown(String name, Exception cause) {
+        failoverCounter.increment();
+        if (replicas.containsKey(name) && Boolean.TRUE.equals(replicaUp.put(name, false))) {
+            log.warn("从库读取失败，暂时摘除: {} ({})", name, cause.getMessage());
+            refreshHealthy();
+        }
+    }
+
+    /**
+     * 检查所有从库的连接，更新可用列表
+     */
+    void checkReplicas() {
+        boolean changed = false;
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            boolean up = isValid(replica.getValue());
+            Boolean previous = replicaUp.put(replica.getKey(), up);
+            if (previous == null || previous != up) {
+                changed = true;
+                if (up) {
+                    log.info("从库恢复可用: {}", replica.getKey());
+                } else {
+                    log.warn("从库健康检查失败，已摘除: {}", replica.getKey());
+                }
+            }
+        }
+        if (changed) {
+            refreshHealthy();
+        }
+    }
+
+    private void checkReplicasQuietly() {
+        try {
+            checkReplicas();
+        } catch (RuntimeException e) {
+            // 异常会取消后续的定时执行
+            log.warn("从库健康检查异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从库名称是否属于本数据源
+     */
+    boolean isReplica(String name) {
+        return name != null && replicas.containsKey(name);
+    }
+
+    private boolean isValid(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(healthCheckTimeoutSeconds);
+        } catch (Exception e) {
+            log.debug("从库连接检查失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void refreshHealthy() {
+        List<String> healthy = new ArrayList<>();
+        replicas.keySet().forEach(name -> {
+            if (Boolean.TRUE.equals(replicaUp.get(name))) {
+                healthy.add(name);
+            }
+        });
+        healthyReplicas = healthy.toArray(new String[0]);
+    }
+
+    /**
+     * 停止健康检查并关闭从库连接池，主库由容器管理
+     */
+    @Override
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.debug("关闭从库连接池失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
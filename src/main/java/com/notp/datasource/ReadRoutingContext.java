@@ -0,0 +1,38 @@
+package com.notp.datasource;
+
+/**
+ * 当前线程的数据源路由标记
+ * 未设置时使用主库；{@link #REPLICA} 表示本次读取可以走从库，
+ * 选中具体从库后替换为该从库的名称，失败时据此摘除
+ *
+ * @author sign
+ */
+final class ReadRoutingContext {
+
+    /**
+     * 主库
+     */
+    static final String PRIMARY = "primary";
+
+    /**
+     * 任一健康从库
+     */
+    static final String REPLICA = "replica";
+
+    private static final ThreadLocal<String> KEY = new ThreadLocal<>();
+
+    private ReadRoutingContext() {
+    }
+
+    static String get() {
+        return KEY.get();
+    }
+
+    static void set(String key) {
+        KEY.set(key);
+    }
+
+    static void clear() {
+        KEY.remove();
+    }
+}
@@ -0,0 +1,45 @@
+package com.notp.entity;
+
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * OTP验证审计日志表
+ *
+ * @author sign
+ */
+@Data
+@TableName("sys_otp_audit_log")
+public class SysOtpAuditLog {
+
+    @TableId
+    private Long id;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 验证结果（OtpErrorCode代码）
+     */
+    private String outcome;
+
+    /**
+     * 客户端IP，批量验证时为空
+     */
+    private String clientIp;
+
+    /**
+     * 验证时的时间步长（TOTP）或期望计数器（HOTP），用户未配置时为空
+     */
+    private Long timeStep;
+
+    /**
+     * 验证时间
+     */
+    private Date verifyTime;
+}
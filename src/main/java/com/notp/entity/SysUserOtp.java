@@ -24,10 +24,40 @@ public class SysUserOtp {
     private Long userId;
 
     /**
-     * OTP密钥 (Base32编码)
+     * OTP密钥：key_version为0时为Base32明文，否则为AES-GCM密文（Base64编码）
      */
     private String secret;
 
+    /**
+     * 加密所用数据密钥版本，0表示明文
+     */
+    private Integer keyVersion;
+
+    /**
+     * OTP类型（totp/hotp）
+     */
+    private String otpType;
+
+    /**
+     * 哈希算法（SHA1/SHA256/SHA512）
+     */
+    private String algorithm;
+
+    /**
+     * 验证码位数
+     */
+    private Integer digits;
+
+    /**
+     * 时间步长（秒），仅TOTP
+     */
+    private Integer period;
+
+    /**
+     * 下一个期望的计数器，仅HOTP
+     */
+    private Long counter;
+
     /**
      * 是否启用
      */
@@ -0,0 +1,29 @@
+package com.notp.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 进程内回环传输
+ * 在发送线程上同步回调所有监听器。单节点部署时使用；
+ * 测试中可让多个 {@link OtpInvalidationBroadcaster}（不同节点ID）共用一个实例模拟多节点
+ *
+ * @author sign
+ */
+public class LoopbackOtpInvalidationTransport implements OtpInvalidationTransport {
+
+    private final List<Consumer<OtpInvalidationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(OtpInvalidationEvent event) {
+        for (Consumer<OtpInvalidationEvent> listener : listeners) {
+            listener.accept(event);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<OtpInvalidationEvent> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,176 @@
+package com.notp.invalidation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notp.cache.EnrolledUserFilter;
+import com.notp.cache.OtpKeyCache;
+import com.notp.cache.OtpStatusCache;
+import com.notp.cache.QrCodeCache;
+import com.notp.config.OtpProperties;
+import com.notp.datasource.OtpReadRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OTP缓存失效广播
+ * 用户OTP记录写入后立即失效本节点缓存，事务提交后通过 {@link OtpInvalidationTransport} 广播带版本号的事件；
+ * 其他节点收到后失效同一用户的密钥缓存、状态缓存和二维码缓存（启用事件同时加入已配置用户过滤器）。
+ * 失效是幂等的，收到的事件总是应用：版本号取自发送节点的时钟，节点间时钟偏差会让后发生的变更看起来更旧，
+ * 据此丢弃会让接收节点继续使用旧密钥或旧启用状态直到缓存过期。
+ * 时钟和每个用户最近收到的版本只用于诊断，统计乱序或重复到达的事件（otp.invalidation.reordered），不影响是否应用。
+ * 启用读写分离时，事件同时使该用户的读取在一段时间内走主库，避免从库复制延迟导致读到旧记录。
+ * 传输失败时其他节点的缓存最迟在过期时间后刷新。
+ *
+ * @author sign
+ */
+@Slf4j
+@Component
+public class OtpInvalidationBroadcaster {
+
+    /**
+     * 版本号中序号所占位数，每毫秒最多4096个版本，超出时借用后续毫秒
+     */
+    private static final int SEQUENCE_BITS = 12;
+
+    private final OtpInvalidationTransport transport;
+    private final OtpKeyCache otpKeyCache;
+    private final OtpStatusCache otpStatusCache;
+    private final QrCodeCache qrCodeCache;
+    private final EnrolledUserFilter enrolledUserFilter;
+    private final OtpReadRouting otpReadRouting;
+    private final String nodeId;
+    private final AtomicLong clock = new AtomicLong();
+    private final Cache<Long, Long> receivedVersions;
+    private final Counter reorderedCounter;
+
+    public OtpInvalidationBroadcaster(OtpInvalidationTransport transport, OtpKeyCache otpKeyCache,
+                                      OtpStatusCache otpStatusCache, QrCodeCache qrCodeCache,
+                                      EnrolledUserFilter enrolledUserFilter,
+                                      OtpReadRouting otpReadRouting, OtpProperties properties,
+                                      MeterRegistry registry) {
+        this.transport = transport;
+        this.otpKeyCache = otpKeyCache;
+        this.otpStatusCache = otpStatusCache;
+        this.qrCodeCache = qrCodeCache;
+        this.enrolledUserFilter = enrolledUserFilter;
+        this.otpReadRouting = otpReadRouting;
+        OtpProperties.Invalidation config = properties.getInvalidation();
+        this.nodeId = config.getNodeId() == null || config.getNodeId().isBlank()
+                ? UUID.randomUUID().toString() : config.getNodeId();
+        this.receivedVersions = Caffeine.newBuilder()
+                .maximumSize(config.getVersionCacheSize())
+                .expireAfterWrite(config.getVersionRetention())
+                .build();
+        this.reorderedCounter = Counter.builder("otp.invalidation.reordered")
+                .description("收到的版本不新于已收到版本的失效事件数（重复、乱序或节点时钟偏差），仍会应用")
+                .register(registry);
+        transport.subscribe(this::receive);
+    }
+
+    /**
+     * 用户启用OTP（写入记录）后调用
+     *
+     * @param userId 用户ID
+     */
+    public void enrolled(Long userId) {
+        publish(userId, OtpInvalidationEvent.ENROLLED);
+    }
+
+    /**
+     * 用户OTP记录被修改后调用
+     *
+     * @param userId 用户ID
+     */
+    public void changed(Long userId) {
+        publish(userId, OtpInvalidationEvent.CHANGED);
+    }
+
+    /**
+     * 本节点ID
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void publish(Long userId, String type) {
+        OtpInvalidationEvent event = OtpInvalidationEvent.of(userId, type, nextVersion(), nodeId);
+        accept(event);
+        apply(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(OtpInvalidationEvent event) {
+        try {
+            transport.send(event);
+        } catch (RuntimeException e) {
+            log.warn("OTP缓存失效事件广播失败，用户ID: {}，版本: {}", event.getUserId(), event.getVersion(), e);
+        }
+    }
+
+    /**
+     * 处理传输收到的事件，忽略本节点发布的事件；版本不新的事件只计数，仍然失效缓存
+     */
+    void receive(OtpInvalidationEvent event) {
+        if (event == null || event.getUserId() == null || nodeId.equals(event.getNodeId())) {
+            return;
+        }
+        clock.accumulateAndGet(event.getVersion(), Math::max);
+        if (!accept(event)) {
+            reorderedCounter.increment();
+            log.debug("OTP缓存失效事件版本不新于已收到版本，仍然应用，用户ID: {}，版本: {}",
+                    event.getUserId(), event.getVersion());
+        }
+        apply(event);
+    }
+
+    /**
+     * 记录用户收到的最新版本（只用于统计）
+     *
+     * @return 事件版本是否比已收到的版本新
+     */
+    private boolean accept(OtpInvalidationEvent event) {
+        boolean[] newer = new boolean[1];
+        receivedVersions.asMap().compute(event.getUserId(), (userId, applied) -> {
+            if (applied != null && applied >= event.getVersion()) {
+                return applied;
+            }
+            newer[0] = true;
+            return event.getVersion();
+        });
+        return newer[0];
+    }
+
+    private void apply(OtpInvalidationEvent event) {
+        if (OtpInvalidationEvent.ENROLLED.equals(event.getType())) {
+            enrolledUserFilter.add(event.getUserId());
+        }
+        otpReadRouting.markWritten(event.getUserId());
+        otpKeyCache.invalidate(event.getUserId());
+        otpStatusCache.invalidate(event.getUserId());
+        qrCodeCache.invalidate(event.getUserId());
+    }
+
+    /**
+     * 混合逻辑时钟：不小于当前毫秒时间，且严格大于本节点发布或收到过的所有版本
+     */
+    private long nextVersion() {
+        long physical = System.currentTimeMillis() << SEQUENCE_BITS;
+        return clock.updateAndGet(last -> Math.max(last + 1, physical));
+    }
+}
@@ -0,0 +1,53 @@
+package com.notp.invalidation;
+
+import lombok.Data;
+
+/**
+ * OTP缓存失效事件
+ * 版本号为发布节点的混合逻辑时钟（毫秒时间左移12位加序号），仅用于诊断：接收方总是应用事件，
+ * 只按版本统计重复、乱序或节点时钟偏差导致版本不新的事件
+ *
+ * @author sign
+ */
+@Data
+public class OtpInvalidationEvent {
+
+    /**
+     * 用户写入了OTP记录（启用），接收方需把用户加入已配置用户过滤器
+     */
+    public static final String ENROLLED = "ENROLLED";
+
+    /**
+     * 用户OTP记录被修改（禁用），接收方只失效缓存
+     */
+    public static final String CHANGED = "CHANGED";
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 事件类型（ENROLLED/CHANGED）
+     */
+    private String type;
+
+    /**
+     * 版本号（诊断用，不决定是否应用）
+     */
+    private long version;
+
+    /**
+     * 发布节点ID
+     */
+    private String nodeId;
+
+    public static OtpInvalidationEvent of(Long userId, String type, long version, String nodeId) {
+        OtpInvalidationEvent event = new OtpInvalidationEvent();
+        event.setUserId(userId);
+        event.setType(type);
+        event.setVersion(version);
+        event.setNodeId(nodeId);
+        return event;
+    }
+}
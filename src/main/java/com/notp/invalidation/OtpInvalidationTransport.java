@@ -0,0 +1,27 @@
+package com.notp.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * OTP缓存失效事件传输
+ * 默认使用进程内回环实现；多节点部署时注册基于消息中间件（如Redis发布订阅、Kafka）的Bean替换默认实现。
+ * 实现需把事件投递给所有节点（含发布节点自身亦可），允许重复和乱序投递
+ *
+ * @author sign
+ */
+public interface OtpInvalidationTransport {
+
+    /**
+     * 广播事件，不应阻塞调用线程太久
+     *
+     * @param event 失效事件
+     */
+    void send(OtpInvalidationEvent event);
+
+    /**
+     * 注册事件监听器，收到其他节点的事件时回调
+     *
+     * @param listener 监听器
+     */
+    void subscribe(Consumer<OtpInvalidationEvent> listener);
+}
@@ -0,0 +1,24 @@
+package com.notp.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.notp.entity.SysOtpAuditLog;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+/**
+ * OTP验证审计日志Mapper
+ *
+ * @author sign
+ */
+@Mapper
+public interface SysOtpAuditLogMapper extends BaseMapper<SysOtpAuditLog> {
+
+    /**
+     * 多行插入审计日志
+     *
+     * @param logs 审计日志
+     * @return 插入行数
+     */
+    int insertBatch(List<SysOtpAuditLog> logs);
+}
@@ -3,7 +3,12 @@ package com.notp.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.notp.entity.SysUserOtp;
 import org.apache.ibatis.annotations.Mapper;
-import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 /**
  * 用户OTP配置Mapper
@@ -16,6 +21,82 @@ public interface SysUserOtpMapper extends BaseMapper<SysUserOtp> {
     /**
      * 根据用户ID查询OTP配置
      */
-    @Select("SELECT * FROM sys_user_otp WHERE user_id = #{userId}")
     SysUserOtp selectByUserId(Long userId);
+
+    /**
+     * 根据用户ID只查询启用状态列
+     *
+     * @return 启用状态，用户未配置OTP时返回null
+     */
+    Boolean selectEnabledByUserId(Long userId);
+
+    /**
+     * 根据用户ID批量查询OTP配置
+     */
+    List<SysUserOtp> selectByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * 批量启用OTP（多行upsert）
+     * 用户不存在时插入；已存在但未启用时写入新密钥并启用；已启用的用户保持原密钥不变
+     */
+    int upsertEnabledBatch(@Param("list") List<SysUserOtp> list);
+
+    /**
+     * 加锁读取最新提交的密钥（只含user_id、secret），用于批量启用写入后核对
+     */
+    List<SysUserOtp> selectSecretsForUpdate(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * 按主键顺序流式扫描id大于afterId的OTP配置
+     * 使用MySQL流式结果集逐行读取，须在事务（同一连接）内遍历完并关闭游标
+     *
+     * @param afterId 上次读取的最后一个id，从头开始传0
+     * @param limit 最多读取行数，null表示不限制
+     */
+    Cursor<SysUserOtp> scanAfterId(@Param("afterId") long afterId, @Param("limit") Integer limit);
+
+    /**
+     * 流式扫描全部用户ID，只读uk_user_id索引，需在事务内遍历
+     */
+    Cursor<Long> scanUserIds();
+
+    /**
+     * 按主键顺序查询数据密钥版本不是当前版本的记录
+     *
+     * @param activeVersion 当前数据密钥版本
+     * @param afterId 上一批最后一个id
+     * @param limit 本批最多行数
+     */
+    List<SysUserOtp> selectStaleKeyVersion(@Param("activeVersion") int activeVersion,
+                                           @Param("afterId") long afterId,
+                                           @Param("limit") int limit);
+
+    /**
+     * 重新加密后写回，secret和key_version仍为旧值时才更新，避免覆盖并发的重置
+     *
+     * @return 更新行数，0表示记录已被并发修改
+     */
+    int updateSecretIfUnchanged(@Param("id") Long id,
+                                @Param("secret") String secret,
+                                @Param("keyVersion") int keyVersion,
+                                @Param("oldSecret") String oldSecret,
+                                @Param("oldKeyVersion") int oldKeyVersion);
+
+    /**
+     * 禁用OTP，只更新启用标志和更新时间
+     *
+     * @param id 记录ID
+     * @param updateTime 更新时间
+     * @return 更新行数
+     */
+    int disableById(@Param("id") Long id, @Param("updateTime") Date updateTime);
+
+    /**
+     * HOTP计数器前进到指定值，只在当前值更小时更新
+     *
+     * @param id 记录ID
+     * @param counter 新的下一个期望计数器
+     * @return 更新行数，0表示计数器已被并发推进（验证码重复使用）
+     */
+    int advanceCounter(@Param("id") Long id, @Param("counter") long counter);
 }
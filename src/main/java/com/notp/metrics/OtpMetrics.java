@@ -0,0 +1,155 @@
+package com.notp.metrics;
+
+import com.notp.constant.OtpErrorCode;
+import com.notp.constant.QrCodeFormat;
+import com.notp.util.TotpEngine;
+import com.notp.vo.OtpVerifyResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTP核心路径监控指标
+ * 所有计量器在启动时注册，记录时只做一次Map查找和原子累加，可在满负载下常开
+ *
+ * @author sign
+ */
+@Component
+public class OtpMetrics {
+
+    /**
+     * 尝试限制的维度：用户
+     */
+    public static final String SCOPE_USER = "user";
+
+    /**
+     * 尝试限制的维度：客户端IP
+     */
+    public static final String SCOPE_IP = "ip";
+
+    private final Timer verifyTimer;
+    private final Timer batchVerifyTimer;
+    private final Timer singleLookupTimer;
+    private final Timer batchLookupTimer;
+    private final Map<String, Counter> outcomeCounters = new HashMap<>();
+    private final Counter unknownOutcomeCounter;
+    private final Map<QrCodeFormat, Timer> qrRenderTimers = new EnumMap<>(QrCodeFormat.class);
+    private final Map<QrCodeFormat, DistributionSummary> qrRenderBytes = new EnumMap<>(QrCodeFormat.class);
+    private final Map<String, Counter> attemptRejectedCounters = new HashMap<>();
+    private final Map<String, Counter> lockoutCounters = new HashMap<>();
+
+    public OtpMetrics(MeterRegistry registry) {
+        this.verifyTimer = Timer.builder("otp.verify")
+                .description("单个OTP验证耗时")
+                .register(registry);
+        this.batchVerifyTimer = Timer.builder("otp.verify.batch")
+                .description("批量OTP验证耗时")
+                .register(registry);
+        this.singleLookupTimer = Timer.builder("otp.db.lookup")
+                .description("sys_user_otp查询耗时")
+                .tag("query", "single")
+                .register(registry);
+        this.batchLookupTimer = Timer.builder("otp.db.lookup")
+                .description("sys_user_otp查询耗时")
+                .tag("query", "batch")
+                .register(registry);
+        for (OtpErrorCode errorCode : OtpErrorCode.values()) {
+            outcomeCounters.put(errorCode.getCode(), Counter.builder("otp.verify.outcome")
+                    .description("OTP验证结果计数")
+                    .tag("code", errorCode.getCode())
+                    .tag("outcome", errorCode.name())
+                    .register(registry));
+        }
+        this.unknownOutcomeCounter = outcomeCounters.get(OtpErrorCode.UNKNOWN_ERROR.getCode());
+        for (QrCodeFormat format : QrCodeFormat.values()) {
+            qrRenderTimers.put(format, Timer.builder("otp.qr.render")
+                    .description("二维码渲染耗时（缓存未命中时）")
+                    .tag("format", format.getValue())
+                    .register(registry));
+            qrRenderBytes.put(format, DistributionSummary.builder("otp.qr.render.bytes")
+                    .description("二维码渲染结果大小")
+                    .baseUnit("bytes")
+                    .tag("format", format.getValue())
+                    .register(registry));
+        }
+        for (String scope : new String[]{SCOPE_USER, SCOPE_IP}) {
+            attemptRejectedCounters.put(scope, Counter.builder("otp.ratelimit.rejected")
+                    .description("因锁定被拒绝的验证请求数（未查库、未计算HMAC）")
+                    .tag("scope", scope)
+                    .register(registry));
+            lockoutCounters.put(scope, Counter.builder("otp.ratelimit.lockouts")
+                    .description("因失败次数过多触发的锁定次数")
+                    .tag("scope", scope)
+                    .register(registry));
+        }
+        FunctionCounter.builder("otp.hmac.computations", TotpEngine.class, engine -> TotpEngine.getTotalComputations())
+                .description("HMAC计算次数，与otp.verify计数相除即每次验证的HMAC次数")
+                .register(registry);
+    }
+
+    /**
+     * 记录一次验证的耗时和结果
+     */
+    public void recordVerify(OtpVerifyResult<?> result, long elapsedNanos) {
+        verifyTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        recordOutcome(result);
+    }
+
+    /**
+     * 记录一次批量验证的耗时
+     */
+    public void recordBatchVerify(long elapsedNanos) {
+        batchVerifyTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录验证结果
+     */
+    public void recordOutcome(OtpVerifyResult<?> result) {
+        outcomeCounters.getOrDefault(result.getCode(), unknownOutcomeCounter).increment();
+    }
+
+    /**
+     * 记录单用户查询耗时
+     */
+    public void recordLookup(long elapsedNanos) {
+        singleLookupTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录批量查询耗时
+     */
+    public void recordBatchLookup(long elapsedNanos) {
+        batchLookupTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次二维码渲染的耗时和大小
+     */
+    public void recordQrRender(QrCodeFormat format, long elapsedNanos, int bytes) {
+        qrRenderTimers.get(format).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        qrRenderBytes.get(format).record(bytes);
+    }
+
+    /**
+     * 记录一次因锁定被拒绝的验证
+     */
+    public void recordAttemptRejected(String scope) {
+        attemptRejectedCounters.get(scope).increment();
+    }
+
+    /**
+     * 记录一次锁定
+     */
+    public void recordLockout(String scope) {
+        lockoutCounters.get(scope).increment();
+    }
+}
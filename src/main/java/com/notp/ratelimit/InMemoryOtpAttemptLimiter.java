@@ -0,0 +1,258 @@
+package com.notp.ratelimit;
+
+import com.notp.config.OtpProperties;
+import com.notp.constant.OtpErrorCode;
+import com.notp.metrics.OtpMetrics;
+import com.notp.util.ConcurrentLongTable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内验证尝试限制
+ * 失败次数和锁定状态都保存在以long为键的无锁表中（IP按字节哈希为long），采用分代存储：
+ * 失败次数每个窗口轮换一代，按上一代剩余比例加权估算滑动窗口内的次数；
+ * 验证前先累加次数再与阈值比较（占用），超过阈值时撤回并拒绝，成功或不计入时归还；
+ * 锁定状态每个锁定重置周期轮换一代，值为 锁定截止秒数 << 8 | 锁定次数。
+ *
+ * @author sign
+ */
+public class InMemoryOtpAttemptLimiter implements OtpAttemptLimiter {
+
+    private static final int STRIKE_BITS = 8;
+    private static final long STRIKE_MASK = (1L << STRIKE_BITS) - 1;
+
+    private final OtpProperties.RateLimit config;
+    private final OtpMetrics otpMetrics;
+    private final LongSupplier clock;
+    private final boolean ipEnabled;
+    private final RotatingTable userFailures;
+    private final RotatingTable ipFailures;
+    private final RotatingTable userLockouts;
+    private final RotatingTable ipLockouts;
+
+    public InMemoryOtpAttemptLimiter(OtpProperties.RateLimit config, OtpMetrics otpMetrics) {
+        this(config, otpMetrics, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 当前时间（毫秒），测试时可替换
+     */
+    InMemoryOtpAttemptLimiter(OtpProperties.RateLimit config, OtpMetrics otpMetrics, LongSupplier clock) {
+        this.config = config;
+        this.otpMetrics = otpMetrics;
+        this.clock = clock;
+        this.ipEnabled = config.getIpMaxFailures() > 0;
+        long window = config.getWindow().toMillis();
+        long strikeReset = Math.max(config.getStrikeReset().toMillis(), config.getMaxLockout().toMillis());
+        long start = clock.getAsLong();
+        this.userFailures = new RotatingTable(config.getCapacity(), window, start);
+        this.ipFailures = new RotatingTable(config.getCapacity(), window, start);
+        this.userLockouts = new RotatingTable(config.getCapacity(), strikeReset, start);
+        this.ipLockouts = new RotatingTable(config.getCapacity(), strikeReset, start);
+    }
+
+    @Override
+    public OtpErrorCode check(long userId, String clientIp) {
+        long now = clock.getAsLong();
+        if (isLocked(userLockouts, userId, now)) {
+            otpMetrics.recordAttemptRejected(OtpMetrics.SCOPE_USER);
+            return OtpErrorCode.LOCKED_OUT;
+        }
+        if (ipEnabled && clientIp != null && isLocked(ipLockouts, ipKey(clientIp), now)) {
+            otpMetrics.recordAttemptRejected(OtpMetrics.SCOPE_IP);
+            return OtpErrorCode.TOO_MANY_ATTEMPTS;
+        }
+        return null;
+    }
+
+    @Override
+    public OtpErrorCode tryAcquire(long userId, String clientIp) {
+        OtpErrorCode locked = check(userId, clientIp);
+        if (locked != null) {
+            return locked;
+        }
+        long now = clock.getAsLong();
+        if (!reserve(userFailures, userId, config.getUserMaxFailures(), now)) {
+            otpMetrics.recordAttemptRejected(OtpMetrics.SCOPE_USER);
+            return OtpErrorCode.LOCKED_OUT;
+        }
+        if (ipEnabled && clientIp != null
+                && !reserve(ipFailures, ipKey(clientIp), config.getIpMaxFailures(), now)) {
+            release(userFailures, userId, now);
+            otpMetrics.recordAttemptRejected(OtpMetrics.SCOPE_IP);
+            return OtpErrorCode.TOO_MANY_ATTEMPTS;
+        }
+        return null;
+    }
+
+    @Override
+    public void recordFailure(long userId, String clientIp, boolean countUser) {
+        long now = clock.getAsLong();
+        if (!countUser) {
+            release(userFailures, userId, now);
+        } else if (lockIfExceeded(userFailures, userLockouts, userId, config.getUserMaxFailures(), now)) {
+            otpMetrics.recordLockout(OtpMetrics.SCOPE_USER);
+        }
+        if (ipEnabled && clientIp != null
+                && lockIfExceeded(ipFailures, ipLockouts, ipKey(clientIp), config.getIpMaxFailures(), now)) {
+            otpMetrics.recordLockout(OtpMetrics.SCOPE_IP);
+        }
+    }
+
+    @Override
+    public void recordSuccess(long userId, String clientIp) {
+        long now = clock.getAsLong();
+        reset(userFailures.at(now), userId);
+        if (ipEnabled && clientIp != null) {
+            release(ipFailures, ipKey(clientIp), now);
+        }
+    }
+
+    /**
+     * 占用一次尝试：先累加再估算滑动窗口内的次数，超过阈值时撤回
+     *
+     * @return 是否占用成功
+     */
+    private static boolean reserve(RotatingTable failures, long key, int maxFailures, long now) {
+        Generation generation = failures.at(now);
+        long current = generation.current.updateAndGet(key, count -> count + 1);
+        if (estimate(failures, generation, key, current, now) <= maxFailures) {
+            return true;
+        }
+        generation.current.updateAndGet(key, count -> count > 0 ? count - 1 : 0);
+        return false;
+    }
+
+    /**
+     * 归还占用的一次尝试
+     */
+    private static void release(RotatingTable failures, long key, long now) {
+        Generation generation = failures.at(now);
+        if (generation.current.get(key) != 0) {
+            generation.current.updateAndGet(key, count -> count > 0 ? count - 1 : 0);
+        }
+    }
+
+    /**
+     * 失败次数（含占用中的尝试）在滑动窗口内达到阈值时清零并锁定
+     *
+     * @return 是否触发了锁定
+     */
+    private boolean lockIfExceeded(RotatingTable failures, RotatingTable lockouts, long key, int maxFailures,
+                                   long now) {
+        Generation generation = failures.at(now);
+        if (estimate(failures, generation, key, generation.current.get(key), now) < maxFailures) {
+            return false;
+        }
+        reset(generation, key);
+        lock(lockouts, key, now);
+        return true;
+    }
+
+    /**
+     * 当前代次数加上一代按剩余比例加权的次数
+     */
+    private static double estimate(RotatingTable failures, Generation generation, long key, long current, long now) {
+        double estimate = current;
+        if (generation.previous != null) {
+            double remaining = 1.0 - (double) (now - generation.start) / failures.span;
+            estimate += generation.previous.get(key) * Math.max(0, remaining);
+        }
+        return estimate;
+    }
+
+    /**
+     * 锁定，时长为 lockout × 2^(锁定次数-1)，不超过maxLockout
+     */
+    private void lock(RotatingTable lockouts, long key, long now) {
+        Generation generation = lockouts.at(now);
+        long previous = generation.previous == null ? 0 : generation.previous.get(key);
+        long baseSeconds = config.getLockout().toSeconds();
+        long maxSeconds = config.getMaxLockout().toSeconds();
+        generation.current.updateAndGet(key, state -> {
+            long strikes = Math.min(STRIKE_MASK, ((state != 0 ? state : previous) & STRIKE_MASK) + 1);
+            long seconds = Math.min(maxSeconds, baseSeconds << Math.min(strikes - 1, 30));
+            return (now / 1000 + seconds) << STRIKE_BITS | strikes;
+        });
+    }
+
+    private static boolean isLocked(RotatingTable lockouts, long key, long now) {
+        Generation generation = lockouts.at(now);
+        long state = generation.current.get(key);
+        if (state == 0 && generation.previous != null) {
+            state = generation.previous.get(key);
+        }
+        return (state >>> STRIKE_BITS) > now / 1000;
+    }
+
+    private static void reset(Generation generation, long key) {
+        if (generation.current.get(key) != 0) {
+            generation.current.updateAndGet(key, count -> 0);
+        }
+        if (generation.previous != null && generation.previous.get(key) != 0) {
+            generation.previous.updateAndGet(key, count -> 0);
+        }
+    }
+
+    /**
+     * IP字符串的64位FNV-1a哈希，不做DNS解析
+     */
+    static long ipKey(String clientIp) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : clientIp.getBytes(StandardCharsets.US_ASCII)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 按固定时长轮换的两代表
+     */
+    private static final class RotatingTable {
+
+        private final int capacity;
+        private final long span;
+        private final AtomicReference<Generation> generation;
+
+        private RotatingTable(int capacity, long span, long start) {
+            this.capacity = capacity;
+            this.span = span;
+            this.generation = new AtomicReference<>(
+                    new Generation(start, new ConcurrentLongTable(capacity), null));
+        }
+
+        private Generation at(long now) {
+            Generation current = generation.get();
+            while (now >= current.start + span) {
+                // 超过两代未写入时上一代也已过期，直接丢弃
+                Generation next = now >= current.start + 2 * span
+                        ? new Generation(now, new ConcurrentLongTable(capacity), null)
+                        : new Generation(current.start + span, new ConcurrentLongTable(capacity), current.current);
+                if (generation.compareAndSet(current, next)) {
+                    return next;
+                }
+                current = generation.get();
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 一代存储：当前代表、上一代表及本代起始时间
+     */
+    private static final class Generation {
+
+        private final long start;
+        private final ConcurrentLongTable current;
+        private final ConcurrentLongTable previous;
+
+        private Generation(long start, ConcurrentLongTable current, ConcurrentLongTable previous) {
+            this.start = start;
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.notp.ratelimit;
+
+import com.notp.constant.OtpErrorCode;
+
+/**
+ * OTP验证尝试限制
+ * 按用户和客户端IP统计滑动窗口内的验证失败次数，超过阈值后锁定一段时间，重复锁定时锁定时间逐次加倍。
+ * 计算HMAC前先调用 {@link #tryAcquire} 占用一次尝试（先累加再与阈值比较），并发请求不能同时越过阈值；
+ * 验证成功或失败不计入用户时归还占用的次数。被锁定或次数已用完时直接拒绝，不查库也不计算HMAC。
+ * 默认使用进程内实现；多节点部署时可注册共享存储实现的Bean替换默认实现。
+ *
+ * @author sign
+ */
+public interface OtpAttemptLimiter {
+
+    /**
+     * 只检查锁定状态，不占用尝试次数（用于查库前的提前拒绝）
+     *
+     * @param userId 用户ID
+     * @param clientIp 客户端IP，为null时只检查用户
+     * @return 允许时返回null；用户被锁定返回LOCKED_OUT，IP被锁定返回TOO_MANY_ATTEMPTS
+     */
+    OtpErrorCode check(long userId, String clientIp);
+
+    /**
+     * 检查锁定状态并占用一次尝试，之后必须调用 {@link #recordSuccess} 或 {@link #recordFailure} 之一
+     *
+     * @param userId 用户ID
+     * @param clientIp 客户端IP，为null时只占用用户的次数
+     * @return 允许时返回null；用户被锁定或次数已用完返回LOCKED_OUT，IP被锁定或次数已用完返回TOO_MANY_ATTEMPTS
+     */
+    OtpErrorCode tryAcquire(long userId, String clientIp);
+
+    /**
+     * 记录一次验证失败，占用的次数保留，达到阈值时锁定
+     *
+     * @param userId 用户ID
+     * @param clientIp 客户端IP，与 {@link #tryAcquire} 时相同
+     * @param countUser 是否计入用户失败次数（用户未配置或已禁用时归还用户的次数，只计入IP）
+     */
+    void recordFailure(long userId, String clientIp, boolean countUser);
+
+    /**
+     * 记录一次验证成功，清除用户的失败次数并归还IP占用的次数
+     *
+     * @param userId 用户ID
+     * @param clientIp 客户端IP，与 {@link #tryAcquire} 时相同
+     */
+    void recordSuccess(long userId, String clientIp);
+}
@@ -0,0 +1,84 @@
+package com.notp.replay;
+
+import com.notp.util.ConcurrentLongTable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 进程内防重放存储
+ * 以用户ID（long）为键的无锁表保存最近接受的时间步长，通过CAS保证“晚于上次才接受”。
+ * 采用分代存储：写入当前代，读取当前代和上一代；每经过若干个最大时间步长轮换一次，
+ * 上一代整体丢弃，超出验证窗口的记录因此自动清除。
+ *
+ * @author sign
+ */
+public class InMemoryOtpReplayGuard implements OtpReplayGuard {
+
+    private final int capacity;
+    private final long generationSpan;
+    private final AtomicReference<Generation> generation;
+
+    /**
+     * @param capacity 每代表的槽位数
+     * @param window 验证时允许的前后窗口数
+     * @param maxStepSeconds 所有OTP参数中最大的时间步长（秒）
+     */
+    public InMemoryOtpReplayGuard(int capacity, int window, int maxStepSeconds) {
+        this.capacity = capacity;
+        // 步长c的验证码在当前步长处于[c-window, c+window]时有效，记录需保留2*window+1个步长；
+        // 轮换以传入的步长（最多领先当前步长window个）为准，再多留一个步长；按最大步长换算为秒
+        this.generationSpan = (2L * window + 2) * maxStepSeconds;
+        this.generation = new AtomicReference<>(new Generation(Long.MIN_VALUE, new ConcurrentLongTable(capacity), null));
+    }
+
+    @Override
+    public boolean tryAccept(long userId, long stepStart) {
+        Generation snapshot = rotateIfNeeded(stepStart);
+        if (snapshot.previous != null && snapshot.previous.get(userId) >= stepStart) {
+            return false;
+        }
+        if (!snapshot.current.advance(userId, stepStart)) {
+            return false;
+        }
+        // 写入期间发生了轮换：在新的当前代中再竞争一次，保证与只看到新一代的线程互斥
+        Generation latest = generation.get();
+        while (latest != snapshot) {
+            if (!latest.current.advance(userId, stepStart)) {
+                return false;
+            }
+            snapshot = latest;
+            latest = generation.get();
+        }
+        return true;
+    }
+
+    private Generation rotateIfNeeded(long stepStart) {
+        Generation current = generation.get();
+        while (current.startStep == Long.MIN_VALUE || stepStart >= current.startStep + generationSpan) {
+            Generation next = new Generation(stepStart,
+                    current.startStep == Long.MIN_VALUE ? current.current : new ConcurrentLongTable(capacity),
+                    current.startStep == Long.MIN_VALUE ? null : current.current);
+            if (generation.compareAndSet(current, next)) {
+                return next;
+            }
+            current = generation.get();
+        }
+        return current;
+    }
+
+    /**
+     * 一代存储：当前代表、上一代表及本代起始时间步长
+     */
+    private static final class Generation {
+
+        private final long startStep;
+        private final ConcurrentLongTable current;
+        private final ConcurrentLongTable previous;
+
+        private Generation(long startStep, ConcurrentLongTable current, ConcurrentLongTable previous) {
+            this.startStep = startStep;
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+}
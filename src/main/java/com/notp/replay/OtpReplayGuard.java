@@ -0,0 +1,21 @@
+package com.notp.replay;
+
+/**
+ * OTP防重放存储
+ * 记录每个用户最近一次验证通过的时间步长，同一验证码只能使用一次。
+ * 时间步长以起始时间（epoch秒，即计数器×步长秒数）表示，用户更换不同步长的参数后仍单调递增。
+ * 默认使用进程内实现；多节点部署时可注册共享存储实现的Bean替换默认实现。
+ *
+ * @author sign
+ */
+public interface OtpReplayGuard {
+
+    /**
+     * 仅当时间步长晚于该用户上一次接受的时间步长时接受
+     *
+     * @param userId 用户ID
+     * @param stepStart 本次验证码匹配的时间步长起始时间（epoch秒）
+     * @return 是否接受；返回false表示验证码已被使用过（或早于已使用的验证码）
+     */
+    boolean tryAccept(long userId, long stepStart);
+}
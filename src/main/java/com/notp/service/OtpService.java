@@ -1,9 +1,19 @@
 package com.notp.service;
 
+import com.notp.constant.OtpSecretMode;
+import com.notp.constant.QrCodeFormat;
+import com.notp.entity.SysUserOtp;
+import com.notp.vo.OtpBatchVerifyResult;
+import com.notp.vo.OtpEnrollResult;
+import com.notp.vo.OtpExportRecord;
+import com.notp.vo.OtpVerifyRequest;
 import com.notp.vo.OtpVerifyResult;
 import com.notp.vo.OtpResponse;
 import com.notp.vo.OtpInfoVo;
+import com.notp.vo.QrCodeImage;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * OTP双因素认证服务接口
@@ -20,6 +30,15 @@ public interface OtpService {
      */
     OtpResponse enableOtp(Long userId);
 
+    /**
+     * 使用指定参数模板启用OTP（生成新密钥）
+     *
+     * @param userId 用户ID
+     * @param profileName 参数模板名（otp.profiles），为空时使用默认模板
+     * @return OTP响应
+     */
+    OtpResponse enableOtp(Long userId, String profileName);
+
     /**
      * 启用OTP验证（带验证码验证）
      *
@@ -48,6 +67,65 @@ public interface OtpService {
      */
     OtpVerifyResult verifyOtp(Long userId, String otpCode);
 
+    /**
+     * 验证OTP验证码，并按用户和客户端IP限制失败次数
+     *
+     * @param userId 用户ID
+     * @param otpCode OTP验证码
+     * @param clientIp 客户端IP，为null时只按用户限制
+     * @return 验证结果，被锁定时返回LOCKED_OUT或TOO_MANY_ATTEMPTS
+     */
+    OtpVerifyResult verifyOtp(Long userId, String otpCode, String clientIp);
+
+    /**
+     * 验证数值形式的OTP验证码（二进制协议等不经过字符串的调用方），限制规则与字符串形式相同
+     *
+     * @param userId 用户ID
+     * @param code 验证码数值，超出用户参数模板的位数范围时视为无效
+     * @param clientIp 客户端IP，为null时只按用户限制
+     * @return 验证结果
+     */
+    OtpVerifyResult verifyOtp(Long userId, int code, String clientIp);
+
+    /**
+     * 批量验证OTP验证码
+     *
+     * @param requests 验证请求列表
+     * @return 与请求顺序一致的验证结果
+     */
+    List<OtpBatchVerifyResult> verifyOtpBatch(List<OtpVerifyRequest> requests);
+
+    /**
+     * 批量启用OTP
+     * 按块在独立事务中写入，每块提交后立即把该块结果交给consumer，不在内存中保留全部结果
+     *
+     * @param userIds 用户ID列表，重复ID只处理一次
+     * @param profileName 参数模板名（otp.profiles），为空时使用默认模板
+     * @param consumer 结果消费者，按用户ID首次出现的顺序调用
+     */
+    void enrollOtpBulk(List<Long> userIds, String profileName, Consumer<OtpEnrollResult> consumer);
+
+    /**
+     * 校验导出参数，不合法时抛出IllegalArgumentException
+     * 流式响应开始后无法再返回错误，调用方应在开始输出前先校验
+     *
+     * @param limit 最多导出行数，null表示不限制
+     * @param secretMode 密钥处理方式
+     */
+    void validateExport(Integer limit, OtpSecretMode secretMode);
+
+    /**
+     * 按主键顺序流式导出OTP配置
+     * 逐行读取并交给consumer，内存占用与导出行数无关
+     *
+     * @param afterId 从id大于该值的记录开始，续传时传入上次收到的最后一个id
+     * @param limit 最多导出行数，null表示不限制
+     * @param secretMode 密钥处理方式
+     * @param consumer 记录消费者
+     * @return 导出的行数
+     */
+    long exportOtp(long afterId, Integer limit, OtpSecretMode secretMode, Consumer<OtpExportRecord> consumer);
+
     /**
      * 生成OTP二维码
      *
@@ -56,6 +134,16 @@ public interface OtpService {
      */
     byte[] generateQrCode(Long userId);
 
+    /**
+     * 获取已启用用户的二维码图片（带缓存）
+     *
+     * @param userId 用户ID
+     * @param size 图片边长（像素）
+     * @param format 输出格式
+     * @return 二维码图片
+     */
+    QrCodeImage getQrCodeImage(Long userId, int size, QrCodeFormat format);
+
     /**
      * 生成OTP二维码数据
      *
@@ -64,6 +152,25 @@ public interface OtpService {
      */
     Map<String, Object> generateQRCodeData(Long userId);
 
+    /**
+     * 生成OTP二维码数据
+     *
+     * @param userId 用户ID
+     * @param format 二维码输出格式
+     * @return 二维码相关数据
+     */
+    Map<String, Object> generateQRCodeData(Long userId, QrCodeFormat format);
+
+    /**
+     * 生成指定格式的二维码数据，用户未启用时按指定参数模板启用
+     *
+     * @param userId 用户ID
+     * @param format 二维码输出格式
+     * @param profileName 启用时使用的参数模板名，为空时使用默认模板
+     * @return 二维码数据
+     */
+    Map<String, Object> generateQRCodeData(Long userId, QrCodeFormat format, String profileName);
+
     /**
      * 检查OTP是否启用
      *
@@ -79,4 +186,12 @@ public interface OtpService {
      * @return OTP信息
      */
     OtpInfoVo getOtpInfo(Long userId);
+
+    /**
+     * 由已读取的记录生成OTP信息，供非阻塞数据访问复用同一逻辑
+     *
+     * @param userOtp 用户OTP记录，为null时返回null
+     * @return OTP信息
+     */
+    OtpInfoVo toOtpInfo(SysUserOtp userOtp);
 }
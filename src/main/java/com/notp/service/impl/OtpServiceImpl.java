@@ -1,23 +1,62 @@
 package com.notp.service.impl;
 
+import com.notp.audit.OtpAuditLog;
+import com.notp.cache.EnrolledUserFilter;
+import com.notp.cache.OtpKeyCache;
+import com.notp.cache.OtpKeyEntry;
+import com.notp.cache.OtpStatusCache;
+import com.notp.cache.QrCodeCache;
+import com.notp.config.OtpProperties;
 import com.notp.constant.OtpErrorCode;
+import com.notp.crypto.OtpSecretCipher;
+import com.notp.crypto.OtpSecretGenerator;
+import com.notp.datasource.OtpReadRouting;
+import com.notp.constant.OtpSecretMode;
+import com.notp.constant.QrCodeFormat;
 import com.notp.entity.SysUserOtp;
+import com.notp.invalidation.OtpInvalidationBroadcaster;
 import com.notp.mapper.SysUserOtpMapper;
+import com.notp.metrics.OtpMetrics;
+import com.notp.replay.OtpReplayGuard;
+import com.notp.ratelimit.OtpAttemptLimiter;
 import com.notp.service.OtpService;
-import com.notp.util.TotpUtil;
+import com.notp.util.AesGcmUtil;
+import com.notp.util.OtpProfile;
 import com.notp.util.QrCodeUtil;
+import com.notp.util.TotpEngine;
+import com.notp.util.TotpUtil;
+import com.notp.vo.OtpBatchVerifyResult;
+import com.notp.vo.OtpEnrollResult;
+import com.notp.vo.OtpExportRecord;
 import com.notp.vo.OtpResponse;
 import com.notp.vo.OtpInfoVo;
+import com.notp.vo.OtpVerifyRequest;
 import com.notp.vo.OtpVerifyResult;
+import com.notp.vo.QrCodeImage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.crypto.SecretKey;
+import java.io.IOException;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * OTP双因素认证服务实现类
@@ -30,27 +69,49 @@ import java.util.Map;
 public class OtpServiceImpl implements OtpService {
 
     private final SysUserOtpMapper userOtpMapper;
+    private final OtpKeyCache otpKeyCache;
+    private final OtpStatusCache otpStatusCache;
+    private final EnrolledUserFilter enrolledUserFilter;
+    private final OtpProperties otpProperties;
+    private final OtpReplayGuard otpReplayGuard;
+    private final QrCodeCache qrCodeCache;
+    private final OtpMetrics otpMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final OtpSecretCipher otpSecretCipher;
+    private final OtpSecretGenerator otpSecretGenerator;
+    private final OtpInvalidationBroadcaster otpInvalidationBroadcaster;
+    private final OtpAttemptLimiter otpAttemptLimiter;
+    private final OtpAuditLog otpAuditLog;
+    private final OtpReadRouting otpReadRouting;
 
     @Override
     @Transactional
     public OtpResponse enableOtp(Long userId) {
+        return enableOtp(userId, null);
+    }
+
+    @Override
+    @Transactional
+    public OtpResponse enableOtp(Long userId, String profileName) {
+        OtpProfile profile = resolveProfile(profileName);
         if (userId == null) {
             throw new IllegalArgumentException("用户ID不能为空");
         }
 
         // 检查是否已启用
-        SysUserOtp existing = userOtpMapper.selectByUserId(userId);
+        SysUserOtp existing = selectByUserId(userId);
         if (existing != null && Boolean.TRUE.equals(existing.getEnabled())) {
             throw new RuntimeException("用户已启用OTP验证");
         }
 
         // 生成密钥
-        String secret = TotpUtil.generateSecret();
+        String secret = otpSecretGenerator.generate();
 
         // 保存到数据库
         SysUserOtp userOtp = new SysUserOtp();
         userOtp.setUserId(userId);
-        userOtp.setSecret(secret);
+        otpSecretCipher.seal(userOtp, secret);
+        applyProfile(userOtp, profile);
         userOtp.setEnabled(true);
         userOtp.setCreateTime(new Date());
         userOtp.setUpdateTime(new Date());
@@ -61,11 +122,12 @@ public class OtpServiceImpl implements OtpService {
             userOtp.setId(existing.getId());
             userOtpMapper.updateById(userOtp);
         }
+        otpInvalidationBroadcaster.enrolled(userId);
 
         // 生成响应
         OtpResponse response = new OtpResponse();
         response.setSecret(secret);
-        response.setQrCodeUrl(generateOtpUrl(secret, String.valueOf(userId), "NOTP-System"));
+        response.setQrCodeUrl(generateOtpUrl(secret, String.valueOf(userId), "NOTP-System", profile, 0L));
         response.setEnabled(true);
         response.setErrorCode(OtpErrorCode.SUCCESS.getCode());
         response.setErrorMessage(OtpErrorCode.SUCCESS.getMessage());
@@ -86,7 +148,7 @@ public class OtpServiceImpl implements OtpService {
         }
 
         // 检查是否已启用
-        SysUserOtp existing = userOtpMapper.selectByUserId(userId);
+        SysUserOtp existing = selectByUserId(userId);
         if (existing != null && Boolean.TRUE.equals(existing.getEnabled())) {
             return true; // 已经启用
         }
@@ -94,17 +156,22 @@ public class OtpServiceImpl implements OtpService {
         // 保存到数据库
         SysUserOtp userOtp = new SysUserOtp();
         userOtp.setUserId(userId);
-        userOtp.setSecret(secret);
+        otpSecretCipher.seal(userOtp, secret);
+        applyProfile(userOtp, OtpProfile.DEFAULT);
         userOtp.setEnabled(true);
         userOtp.setCreateTime(new Date());
         userOtp.setUpdateTime(new Date());
 
+        int rows;
         if (existing == null) {
-            return userOtpMapper.insert(userOtp) > 0;
+            rows = userOtpMapper.insert(userOtp);
         } else {
             userOtp.setId(existing.getId());
-            return userOtpMapper.updateById(userOtp) > 0;
+            rows = userOtpMapper.updateById(userOtp);
         }
+        // 写入后再失效缓存，事务提交后广播，其他节点不会在提交前重新加载旧记录
+        otpInvalidationBroadcaster.enrolled(userId);
+        return rows > 0;
     }
 
     @Override
@@ -114,62 +181,464 @@ public class OtpServiceImpl implements OtpService {
             throw new IllegalArgumentException("用户ID不能为空");
         }
 
-        SysUserOtp userOtp = userOtpMapper.selectByUserId(userId);
+        SysUserOtp userOtp = selectByUserId(userId);
         if (userOtp == null) {
             throw new RuntimeException("用户未配置OTP");
         }
 
         // 如果提供了验证码，则验证验证码
         if (code != null && !code.trim().isEmpty()) {
-            if (!TotpUtil.verifyCode(code, userOtp.getSecret())) {
+            if (!matchesCode(userOtp, code)) {
                 throw new RuntimeException("OTP验证码错误");
             }
         }
 
-        userOtp.setEnabled(false);
-        userOtp.setUpdateTime(new Date());
-        int result = userOtpMapper.updateById(userOtp);
+        // 只更新启用标志，不把先前读出的计数器和密钥写回，避免覆盖并发推进的HOTP计数器
+        int result = userOtpMapper.disableById(userOtp.getId(), new Date());
+        otpInvalidationBroadcaster.changed(userId);
 
         return result > 0;
     }
 
     @Override
     public OtpVerifyResult verifyOtp(Long userId, String otpCode) {
+        return verifyOtp(userId, otpCode, null);
+    }
+
+    @Override
+    public OtpVerifyResult verifyOtp(Long userId, String otpCode, String clientIp) {
         if (userId == null || otpCode == null) {
             return OtpVerifyResult.fail(OtpErrorCode.PARAMETER_INVALID);
         }
+        return doVerifyOtp(userId, clientIp, engine -> engine.parseCode(otpCode));
+    }
 
-        SysUserOtp userOtp = userOtpMapper.selectByUserId(userId);
-        if (userOtp == null) {
+    @Override
+    public OtpVerifyResult verifyOtp(Long userId, int code, String clientIp) {
+        if (userId == null) {
+            return OtpVerifyResult.fail(OtpErrorCode.PARAMETER_INVALID);
+        }
+        return doVerifyOtp(userId, clientIp, engine -> engine.parseCode(code));
+    }
+
+    /**
+     * 单个验证：尝试限制、缓存查找、验证、审计和监控，验证码按用户的参数模板解析
+     */
+    private OtpVerifyResult doVerifyOtp(Long userId, String clientIp, ToIntFunction<TotpEngine> codeParser) {
+        long start = System.nanoTime();
+        OtpVerifyResult result;
+        // 先占用一次尝试，被锁定或次数已用完时直接拒绝，不查库也不计算HMAC
+        OtpErrorCode rejected = otpAttemptLimiter.tryAcquire(userId, clientIp);
+        Long timeStep = null;
+        if (rejected != null) {
+            result = OtpVerifyResult.fail(rejected);
+        } else {
+            OtpKeyEntry entry = enrolledUserFilter.mightContain(userId)
+                    ? otpKeyCache.get(userId, this::loadKeyEntry) : null;
+            timeStep = auditTimeStep(entry);
+            result = verifyWithEntry(entry, codeParser);
+            recordAttempt(userId, clientIp, result);
+        }
+        otpAuditLog.record(userId, result.getCode(), clientIp, timeStep);
+        otpMetrics.recordVerify(result, System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public List<OtpBatchVerifyResult> verifyOtpBatch(List<OtpVerifyRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return List.of();
+        }
+        if (requests.size() > otpProperties.getBatch().getMaxSize()) {
+            throw new IllegalArgumentException("单次最多验证" + otpProperties.getBatch().getMaxSize() + "个用户");
+        }
+
+        long start = System.nanoTime();
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> lockedUserIds = new HashSet<>();
+        for (OtpVerifyRequest request : requests) {
+            if (request == null || request.getUserId() == null || lockedUserIds.contains(request.getUserId())) {
+                continue;
+            }
+            if (otpAttemptLimiter.check(request.getUserId(), null) != null) {
+                lockedUserIds.add(request.getUserId());
+            } else if (enrolledUserFilter.mightContain(request.getUserId())) {
+                userIds.add(request.getUserId());
+            }
+        }
+        Map<Long, OtpKeyEntry> entries = userIds.isEmpty()
+                ? Map.of() : otpKeyCache.getAll(userIds, this::loadKeyEntries);
+
+        Stream<OtpVerifyRequest> stream = requests.size() >= otpProperties.getBatch().getParallelThreshold()
+                ? requests.parallelStream() : requests.stream();
+        List<OtpBatchVerifyResult> results = stream.map(request -> {
+            OtpVerifyResult result;
+            if (request == null || request.getUserId() == null || request.getCode() == null) {
+                result = OtpVerifyResult.fail(OtpErrorCode.PARAMETER_INVALID);
+            } else if (lockedUserIds.contains(request.getUserId())
+                    || otpAttemptLimiter.tryAcquire(request.getUserId(), null) != null) {
+                // 每项先占用一次尝试，同一用户的多项在次数用完后返回LOCKED_OUT
+                result = OtpVerifyResult.fail(OtpErrorCode.LOCKED_OUT);
+                otpAuditLog.record(request.getUserId(), result.getCode(), null, null);
+            } else {
+                OtpKeyEntry entry = entries.get(request.getUserId());
+                Long timeStep = auditTimeStep(entry);
+                result = verifyWithEntry(entry, engine -> engine.parseCode(request.getCode()));
+                recordAttempt(request.getUserId(), null, result);
+                otpAuditLog.record(request.getUserId(), result.getCode(), null, timeStep);
+            }
+            otpMetrics.recordOutcome(result);
+            return OtpBatchVerifyResult.of(request == null ? null : request.getUserId(), result);
+        }).collect(Collectors.toList());
+        otpMetrics.recordBatchVerify(System.nanoTime() - start);
+        return results;
+    }
+
+    @Override
+    public void enrollOtpBulk(List<Long> userIds, String profileName, Consumer<OtpEnrollResult> consumer) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        OtpProfile profile = resolveProfile(profileName);
+        OtpProperties.Enroll config = otpProperties.getEnroll();
+        if (userIds.size() > config.getMaxSize()) {
+            throw new IllegalArgumentException("单次最多启用" + config.getMaxSize() + "个用户");
+        }
+
+        List<Long> chunk = new ArrayList<>(config.getChunkSize());
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null || userId <= 0) {
+                consumer.accept(OtpEnrollResult.of(userId, OtpEnrollResult.FAILED, "用户ID不能为空且必须大于0"));
+                continue;
+            }
+            chunk.add(userId);
+            if (chunk.size() == config.getChunkSize()) {
+                enrollChunk(chunk, profile, consumer);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            enrollChunk(chunk, profile, consumer);
+        }
+    }
+
+    @Override
+    public void validateExport(Integer limit, OtpSecretMode secretMode) {
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("导出行数必须大于0");
+        }
+        OtpProperties.Export config = otpProperties.getExport();
+        if (secretMode == OtpSecretMode.PLAIN && !config.isAllowPlain()) {
+            throw new IllegalArgumentException("未开启明文密钥导出");
+        }
+        if (secretMode == OtpSecretMode.ENCRYPT) {
+            if (config.getEncryptionKey() == null || config.getEncryptionKey().isBlank()) {
+                throw new IllegalArgumentException("未配置导出加密密钥");
+            }
+            AesGcmUtil.parseKey(config.getEncryptionKey());
+        }
+    }
+
+    @Override
+    public long exportOtp(long afterId, Integer limit, OtpSecretMode secretMode,
+                          Consumer<OtpExportRecord> consumer) {
+        validateExport(limit, secretMode);
+        SecretKey key = secretMode == OtpSecretMode.ENCRYPT
+                ? AesGcmUtil.parseKey(otpProperties.getExport().getEncryptionKey()) : null;
+        // 流式结果集占用连接直到读完，游标须在只读事务内遍历
+        Long count = readOnlyTransactionTemplate().execute(status -> {
+            long exported = 0;
+            try (Cursor<SysUserOtp> cursor = userOtpMapper.scanAfterId(afterId, limit)) {
+                for (SysUserOtp userOtp : cursor) {
+                    consumer.accept(toExportRecord(userOtp, secretMode, key));
+                    exported++;
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("关闭导出游标失败", e);
+            }
+            return exported;
+        });
+        return count == null ? 0 : count;
+    }
+
+    private TransactionTemplate readOnlyTransactionTemplate() {
+        TransactionTemplate template = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private OtpExportRecord toExportRecord(SysUserOtp userOtp, OtpSecretMode secretMode, SecretKey exportKey) {
+        OtpExportRecord record = new OtpExportRecord();
+        record.setId(userOtp.getId());
+        record.setUserId(userOtp.getUserId());
+        record.setOtpType(userOtp.getOtpType());
+        record.setAlgorithm(userOtp.getAlgorithm());
+        record.setDigits(userOtp.getDigits());
+        record.setPeriod(userOtp.getPeriod());
+        record.setCounter(userOtp.getCounter());
+        record.setEnabled(userOtp.getEnabled());
+        record.setCreateTime(userOtp.getCreateTime());
+        record.setUpdateTime(userOtp.getUpdateTime());
+        if (secretMode == OtpSecretMode.PLAIN) {
+            record.setSecret(otpSecretCipher.open(userOtp));
+        } else if (secretMode == OtpSecretMode.ENCRYPT) {
+            // 以用户ID为附加认证数据，密文无法挪用到其他用户
+            record.setSecret(AesGcmUtil.encryptToBase64(exportKey,
+                    otpSecretCipher.open(userOtp).getBytes(StandardCharsets.US_ASCII),
+                    String.valueOf(userOtp.getUserId()).getBytes(StandardCharsets.US_ASCII)));
+        }
+        return record;
+    }
+
+    /**
+     * 在一个事务中启用一块用户：一次IN查询跳过已启用用户，其余用户一条多行upsert写入，
+     * 写入后加锁重读密钥，只有确实写入了新密钥的用户报告为ENROLLED
+     * 块失败时整块回滚并全部标记为失败，不影响其他块
+     *
+     * @param userIds 本块用户ID
+     * @param profile OTP参数
+     * @param consumer 结果消费者
+     */
+    private void enrollChunk(List<Long> userIds, OtpProfile profile, Consumer<OtpEnrollResult> consumer) {
+        List<OtpEnrollResult> results;
+        try {
+            results = transactionTemplate.execute(status -> {
+                Set<Long> enabled = new HashSet<>();
+                for (SysUserOtp existing : userOtpMapper.selectByUserIds(userIds)) {
+                    if (Boolean.TRUE.equals(existing.getEnabled())) {
+                        enabled.add(existing.getUserId());
+                    }
+                }
+
+                Date now = new Date();
+                List<OtpEnrollResult> chunkResults = new ArrayList<>(userIds.size());
+                Map<Long, SysUserOtp> rows = new LinkedHashMap<>();
+                Map<Long, Integer> resultIndexes = new HashMap<>();
+                for (Long userId : userIds) {
+                    if (enabled.contains(userId)) {
+                        chunkResults.add(OtpEnrollResult.of(userId, OtpEnrollResult.SKIPPED, "用户已启用OTP验证"));
+                        continue;
+                    }
+                    String secret = otpSecretGenerator.generate();
+                    SysUserOtp row = new SysUserOtp();
+                    row.setUserId(userId);
+                    otpSecretCipher.seal(row, secret);
+                    applyProfile(row, profile);
+                    row.setEnabled(true);
+                    row.setCreateTime(now);
+                    row.setUpdateTime(now);
+                    rows.put(userId, row);
+                    resultIndexes.put(userId, chunkResults.size());
+                    chunkResults.add(OtpEnrollResult.enrolled(userId, secret,
+                            generateOtpUrl(secret, String.valueOf(userId), "NOTP-System", profile, 0L)));
+                }
+                if (!rows.isEmpty()) {
+                    userOtpMapper.upsertEnabledBatch(new ArrayList<>(rows.values()));
+                    // 上面的检查不加锁，期间其他请求启用的用户被upsert保留原密钥；加锁重读，密文不是本次写入的按已启用处理
+                    for (SysUserOtp stored : userOtpMapper.selectSecretsForUpdate(rows.keySet())) {
+                        SysUserOtp row = rows.get(stored.getUserId());
+                        if (row != null && !row.getSecret().equals(stored.getSecret())) {
+                            rows.remove(stored.getUserId());
+                            chunkResults.set(resultIndexes.get(stored.getUserId()),
+                                    OtpEnrollResult.of(stored.getUserId(), OtpEnrollResult.SKIPPED, "用户已启用OTP验证"));
+                        }
+                    }
+                    for (Long userId : rows.keySet()) {
+                        otpInvalidationBroadcaster.enrolled(userId);
+                    }
+                }
+                return chunkResults;
+            });
+        } catch (RuntimeException e) {
+            log.error("批量启用OTP失败，本块{}个用户已回滚", userIds.size(), e);
+            for (Long userId : userIds) {
+                consumer.accept(OtpEnrollResult.of(userId, OtpEnrollResult.FAILED, "启用OTP失败: " + e.getMessage()));
+            }
+            return;
+        }
+        results.forEach(consumer);
+    }
+
+    /**
+     * 使用已加载的缓存项验证验证码
+     *
+     * @param entry 缓存项，null表示用户未配置OTP
+     * @param otpCode OTP验证码
+     * @return 验证结果
+     */
+    private OtpVerifyResult verifyWithEntry(OtpKeyEntry entry, ToIntFunction<TotpEngine> codeParser) {
+        if (entry == null) {
             return OtpVerifyResult.fail(OtpErrorCode.NOT_CONFIGURED);
         }
 
-        if (!Boolean.TRUE.equals(userOtp.getEnabled())) {
+        if (!entry.isEnabled()) {
             return OtpVerifyResult.fail(OtpErrorCode.DISABLED);
         }
 
-        if (TotpUtil.verifyCode(otpCode, userOtp.getSecret())) {
-            return OtpVerifyResult.success("OTP验证成功");
-        } else {
+        OtpProfile profile = entry.getProfile();
+        TotpEngine engine = profile.getEngine();
+        int code = codeParser.applyAsInt(engine);
+        if (code < 0 || entry.getKey().length == 0) {
+            return OtpVerifyResult.fail(OtpErrorCode.INVALID_CODE);
+        }
+
+        if (profile.isCounterBased()) {
+            return verifyHotp(entry, engine, code);
+        }
+
+        long matched = entry.match(engine, code, engine.currentCounter(), 1);
+        if (matched == TotpEngine.NO_MATCH) {
             return OtpVerifyResult.fail(OtpErrorCode.INVALID_CODE);
         }
+
+        // 同一用户只接受比上次更新的时间步长，阻止验证码重放
+        if (!otpReplayGuard.tryAccept(entry.getUserId(), matched * profile.getPeriod())) {
+            return OtpVerifyResult.fail(OtpErrorCode.CODE_REUSED);
+        }
+        return OtpVerifyResult.success("OTP验证成功");
+    }
+
+    /**
+     * HOTP验证：从下一个期望的计数器向后查找，匹配后在数据库中推进计数器
+     * 计数器只能增大，更新失败说明验证码已被使用或其他节点已推进计数器
+     */
+    private OtpVerifyResult verifyHotp(OtpKeyEntry entry, TotpEngine engine, int code) {
+        long matched = engine.matchForward(entry.getKey(), code, entry.getCounter(),
+                otpProperties.getHotp().getLookAhead());
+        if (matched == TotpEngine.NO_MATCH) {
+            return OtpVerifyResult.fail(OtpErrorCode.INVALID_CODE);
+        }
+        int advanced = userOtpMapper.advanceCounter(entry.getId(), matched + 1);
+        // 从库上的计数器可能尚未推进，缓存重新加载时读主库
+        otpReadRouting.markWritten(entry.getUserId());
+        if (advanced == 0) {
+            // 缓存中的计数器已落后于数据库，重新加载
+            invalidateCaches(entry.getUserId());
+            return OtpVerifyResult.fail(OtpErrorCode.CODE_REUSED);
+        }
+        entry.advanceCounter(matched + 1);
+        return OtpVerifyResult.success("OTP验证成功");
+    }
+
+    /**
+     * 从数据库加载用户密钥并解码
+     *
+     * @param userId 用户ID
+     * @return 缓存项，用户未配置OTP时返回null
+     */
+    private OtpKeyEntry loadKeyEntry(Long userId) {
+        SysUserOtp userOtp = selectByUserId(userId);
+        if (userOtp == null) {
+            return null;
+        }
+        return toKeyEntry(userOtp);
+    }
+
+    /**
+     * 通过一次IN查询批量加载用户密钥
+     *
+     * @param userIds 用户ID集合
+     * @return 用户ID到缓存项的映射，不包含未配置OTP的用户
+     */
+    private Map<Long, OtpKeyEntry> loadKeyEntries(Set<? extends Long> userIds) {
+        long start = System.nanoTime();
+        List<SysUserOtp> userOtps = otpReadRouting.read(userIds,
+                () -> userOtpMapper.selectByUserIds(List.copyOf(userIds)));
+        otpMetrics.recordBatchLookup(System.nanoTime() - start);
+
+        Map<Long, OtpKeyEntry> entries = new HashMap<>();
+        for (SysUserOtp userOtp : userOtps) {
+            entries.put(userOtp.getUserId(), toKeyEntry(userOtp));
+        }
+        return entries;
+    }
+
+    /**
+     * 按用户ID查询OTP配置并记录查询耗时
+     *
+     * @param userId 用户ID
+     * @return OTP配置，不存在时返回null
+     */
+    private SysUserOtp selectByUserId(Long userId) {
+        long start = System.nanoTime();
+        SysUserOtp userOtp = otpReadRouting.read(userId, () -> userOtpMapper.selectByUserId(userId));
+        otpMetrics.recordLookup(System.nanoTime() - start);
+        return userOtp;
+    }
+
+    private OtpKeyEntry toKeyEntry(SysUserOtp userOtp) {
+        return OtpKeyEntry.of(userOtp, TotpUtil.decodeSecret(otpSecretCipher.open(userOtp)));
+    }
+
+    /**
+     * 按记录自身的OTP参数校验验证码（不推进HOTP计数器，不登记防重放）
+     */
+    private boolean matchesCode(SysUserOtp userOtp, String code) {
+        OtpProfile profile = profileOf(userOtp);
+        TotpEngine engine = profile.getEngine();
+        int value = engine.parseCode(code);
+        if (value < 0) {
+            return false;
+        }
+        byte[] key = TotpUtil.decodeSecret(otpSecretCipher.open(userOtp));
+        if (key.length == 0) {
+            return false;
+        }
+        if (profile.isCounterBased()) {
+            long counter = userOtp.getCounter() == null ? 0 : userOtp.getCounter();
+            return engine.matchForward(key, value, counter, otpProperties.getHotp().getLookAhead()) != TotpEngine.NO_MATCH;
+        }
+        return engine.verify(key, value, engine.currentCounter(), 1);
+    }
+
+    /**
+     * 按模板名解析OTP参数，为空时使用默认模板
+     */
+    private OtpProfile resolveProfile(String profileName) {
+        String name = profileName == null || profileName.isEmpty() ? otpProperties.getDefaultProfile() : profileName;
+        OtpProperties.Profile config = otpProperties.getProfiles().get(name);
+        if (config == null) {
+            if (profileName == null || profileName.isEmpty()) {
+                return OtpProfile.DEFAULT;
+            }
+            throw new IllegalArgumentException("未知的OTP参数模板: " + profileName);
+        }
+        return OtpProfile.of(config.getType(), config.getAlgorithm(), config.getDigits(), config.getPeriod());
+    }
+
+    private static OtpProfile profileOf(SysUserOtp userOtp) {
+        return OtpProfile.of(userOtp.getOtpType(), userOtp.getAlgorithm(), userOtp.getDigits(), userOtp.getPeriod());
+    }
+
+    private static void applyProfile(SysUserOtp userOtp, OtpProfile profile) {
+        userOtp.setOtpType(profile.getType().getValue());
+        userOtp.setAlgorithm(profile.getAlgorithm().getValue());
+        userOtp.setDigits(profile.getDigits());
+        userOtp.setPeriod(profile.getPeriod());
+        userOtp.setCounter(0L);
     }
 
     @Override
     public byte[] generateQrCode(Long userId) {
+        return getQrCodeImage(userId, 400, QrCodeFormat.PNG).getContent();
+    }
+
+    @Override
+    public QrCodeImage getQrCodeImage(Long userId, int size, QrCodeFormat format) {
         if (userId == null) {
             throw new IllegalArgumentException("用户ID不能为空");
         }
 
-        SysUserOtp userOtp = userOtpMapper.selectByUserId(userId);
+        SysUserOtp userOtp = selectByUserId(userId);
         if (userOtp == null || !Boolean.TRUE.equals(userOtp.getEnabled())) {
             throw new RuntimeException("用户未启用OTP验证");
         }
 
-        String qrCodeUrl = generateOtpUrl(userOtp.getSecret(), String.valueOf(userId), "NOTP-System");
+        String qrCodeUrl = generateOtpUrl(otpSecretCipher.open(userOtp), String.valueOf(userId), "NOTP-System",
+                profileOf(userOtp), userOtp.getCounter());
 
         try {
-            return QrCodeUtil.generateQRCodeImage(qrCodeUrl, 400, 400);
+            return qrCodeCache.get(userId, qrCodeUrl, size, format);
         } catch (Exception e) {
             throw new RuntimeException("生成二维码失败", e);
         }
@@ -177,21 +646,32 @@ public class OtpServiceImpl implements OtpService {
 
     @Override
     public Map<String, Object> generateQRCodeData(Long userId) {
+        return generateQRCodeData(userId, QrCodeFormat.PNG);
+    }
+
+    @Override
+    public Map<String, Object> generateQRCodeData(Long userId, QrCodeFormat format) {
+        return generateQRCodeData(userId, format, null);
+    }
+
+    @Override
+    public Map<String, Object> generateQRCodeData(Long userId, QrCodeFormat format, String profileName) {
         if (userId == null) {
             throw new IllegalArgumentException("用户ID不能为空");
         }
 
         // 检查是否已启用OTP
-        SysUserOtp userOtp = userOtpMapper.selectByUserId(userId);
+        SysUserOtp userOtp = selectByUserId(userId);
         if (userOtp == null || !Boolean.TRUE.equals(userOtp.getEnabled())) {
             // 如果未启用，先生成并启用OTP
-            OtpResponse response = enableOtp(userId);
+            OtpResponse response = enableOtp(userId, profileName);
 
             Map<String, Object> result = new HashMap<>();
             result.put("userId", userId);
             result.put("username", "user" + userId);
             result.put("secret", response.getSecret());
             result.put("qrCodeUrl", response.getQrCodeUrl());
+            result.put("qrCode", qrCodeCache.get(userId, response.getQrCodeUrl(), QrCodeUtil.QR_CODE_SIZE, format).getEmbeddable());
             result.put("enabled", true);
             result.put("qrCodeData", response.getQrCodeUrl());
 
@@ -199,13 +679,16 @@ public class OtpServiceImpl implements OtpService {
         }
 
         // 已启用，直接返回二维码数据
-        String qrCodeUrl = generateOtpUrl(userOtp.getSecret(), String.valueOf(userId), "NOTP-System");
+        String secret = otpSecretCipher.open(userOtp);
+        String qrCodeUrl = generateOtpUrl(secret, String.valueOf(userId), "NOTP-System",
+                profileOf(userOtp), userOtp.getCounter());
 
         Map<String, Object> result = new HashMap<>();
         result.put("userId", userId);
         result.put("username", "user" + userId);
-        result.put("secret", userOtp.getSecret());
+        result.put("secret", secret);
         result.put("qrCodeUrl", qrCodeUrl);
+        result.put("qrCode", qrCodeCache.get(userId, qrCodeUrl, QrCodeUtil.QR_CODE_SIZE, format).getEmbeddable());
         result.put("enabled", true);
         result.put("qrCodeData", qrCodeUrl);
 
@@ -218,8 +701,16 @@ public class OtpServiceImpl implements OtpService {
             return false;
         }
 
-        SysUserOtp userOtp = userOtpMapper.selectByUserId(userId);
-        return userOtp != null && Boolean.TRUE.equals(userOtp.getEnabled());
+        if (!enrolledUserFilter.mightContain(userId)) {
+            return false;
+        }
+
+        // 密钥缓存已有该用户时直接取其启用标志，否则走只含启用标志的状态缓存，不读取密钥列
+        OtpKeyEntry entry = otpKeyCache.getIfLoaded(userId);
+        if (entry != null) {
+            return entry.isEnabled();
+        }
+        return otpStatusCache.get(userId, this::selectEnabledByUserId);
     }
 
     @Override
@@ -227,12 +718,20 @@ public class OtpServiceImpl implements OtpService {
         if (userId == null) {
             throw new IllegalArgumentException("用户ID不能为空");
         }
+        if (!enrolledUserFilter.mightContain(userId)) {
+            return null;
+        }
 
-        SysUserOtp userOtp = userOtpMapper.selectByUserId(userId);
+        return toOtpInfo(selectByUserId(userId));
+    }
+
+    @Override
+    public OtpInfoVo toOtpInfo(SysUserOtp userOtp) {
         if (userOtp == null) {
             return null;
         }
 
+        Long userId = userOtp.getUserId();
         OtpInfoVo info = new OtpInfoVo();
         info.setUserId(userId);
         info.setEnabled(userOtp.getEnabled());
@@ -240,26 +739,77 @@ public class OtpServiceImpl implements OtpService {
         info.setUpdateTime(userOtp.getUpdateTime());
 
         if (Boolean.TRUE.equals(userOtp.getEnabled())) {
-            info.setQrCodeUrl(generateOtpUrl(userOtp.getSecret(), String.valueOf(userId), "NOTP-System"));
+            info.setQrCodeUrl(generateOtpUrl(otpSecretCipher.open(userOtp), String.valueOf(userId), "NOTP-System",
+                    profileOf(userOtp), userOtp.getCounter()));
         }
 
         return info;
     }
 
+    /**
+     * 审计记录中的时间步长：TOTP为当前时间步长，HOTP为验证前期望的计数器，未配置OTP时为null
+     */
+    private Long auditTimeStep(OtpKeyEntry entry) {
+        if (entry == null) {
+            return null;
+        }
+        return entry.getProfile().isCounterBased() ? entry.getCounter() : entry.getProfile().getEngine().currentCounter();
+    }
+
+    /**
+     * 把验证结果计入尝试限制：验证码错误计入用户和IP，用户未配置、已禁用等只计入IP
+     */
+    private void recordAttempt(Long userId, String clientIp, OtpVerifyResult result) {
+        if (result.isSuccess()) {
+            otpAttemptLimiter.recordSuccess(userId, clientIp);
+            return;
+        }
+        String code = result.getCode();
+        boolean countUser = OtpErrorCode.INVALID_CODE.getCode().equals(code)
+                || OtpErrorCode.CODE_REUSED.getCode().equals(code)
+                || OtpErrorCode.CODE_EXPIRED.getCode().equals(code);
+        otpAttemptLimiter.recordFailure(userId, clientIp, countUser);
+    }
+
+    /**
+     * 查询启用状态并记录耗时，未配置OTP视为未启用
+     */
+    private Boolean selectEnabledByUserId(Long userId) {
+        long start = System.nanoTime();
+        Boolean enabled = otpReadRouting.read(userId, () -> userOtpMapper.selectEnabledByUserId(userId));
+        otpMetrics.recordLookup(System.nanoTime() - start);
+        return Boolean.TRUE.equals(enabled);
+    }
+
+    /**
+     * 使本节点上用户的密钥缓存、状态缓存和二维码缓存失效
+     */
+    private void invalidateCaches(Long userId) {
+        otpKeyCache.invalidate(userId);
+        otpStatusCache.invalidate(userId);
+        qrCodeCache.invalidate(userId);
+    }
+
     /**
      * 生成OTP URL
      * @param secret 密钥
      * @param account 账户名
      * @param issuer 颁发者
+     * @param profile OTP参数
+     * @param counter HOTP初始计数器，TOTP忽略
      * @return OTP URL
      */
-    private String generateOtpUrl(String secret, String account, String issuer) {
+    private String generateOtpUrl(String secret, String account, String issuer, OtpProfile profile, Long counter) {
         try {
             String encodedAccount = URLEncoder.encode(account, "UTF-8");
             String encodedIssuer = URLEncoder.encode(issuer, "UTF-8");
 
-            return String.format("otpauth://totp/%s:%s?secret=%s&issuer=%s&algorithm=SHA512&digits=6&period=30",
-                    encodedIssuer, encodedAccount, secret, encodedIssuer);
+            String url = String.format("otpauth://%s/%s:%s?secret=%s&issuer=%s&algorithm=%s&digits=%d",
+                    profile.getType().getValue(), encodedIssuer, encodedAccount, secret, encodedIssuer,
+                    profile.getAlgorithm().getValue(), profile.getDigits());
+            return profile.isCounterBased()
+                    ? url + "&counter=" + (counter == null ? 0 : counter)
+                    : url + "&period=" + profile.getPeriod();
         } catch (Exception e) {
             throw new RuntimeException("生成OTP URL失败", e);
         }
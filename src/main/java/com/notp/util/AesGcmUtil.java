@@ -0,0 +1,103 @@
+package com.notp.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * AES-GCM加解密工具类
+ * 密文格式：12字节随机IV + 密文 + 16字节认证标签
+ *
+ * @author sign
+ */
+public class AesGcmUtil {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * 由Base64编码的密钥构造AES密钥（16、24或32字节）
+     */
+    public static SecretKey parseKey(String base64Key) {
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(base64Key.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("AES密钥不是合法的Base64编码", e);
+        }
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("AES密钥长度必须为16、24或32字节: " + key.length);
+        }
+        return new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * 加密
+     *
+     * @param key AES密钥
+     * @param plaintext 明文
+     * @param aad 附加认证数据，解密时必须一致，可为null
+     * @return IV + 密文 + 认证标签
+     */
+    public static byte[] encrypt(SecretKey key, byte[] plaintext, byte[] aad) {
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            byte[] result = new byte[IV_LENGTH + cipher.getOutputSize(plaintext.length)];
+            System.arraycopy(iv, 0, result, 0, IV_LENGTH);
+            cipher.doFinal(plaintext, 0, plaintext.length, result, IV_LENGTH);
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM加密失败", e);
+        }
+    }
+
+    /**
+     * 解密
+     *
+     * @param key AES密钥
+     * @param data IV + 密文 + 认证标签
+     * @param aad 附加认证数据，须与加密时一致，可为null
+     * @return 明文
+     */
+    public static byte[] decrypt(SecretKey key, byte[] data, byte[] aad) {
+        if (data.length < IV_LENGTH + TAG_BITS / 8) {
+            throw new IllegalArgumentException("密文长度不足");
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            return cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM解密失败，密钥错误或密文已被篡改", e);
+        }
+    }
+
+    /**
+     * 加密并以Base64编码输出
+     */
+    public static String encryptToBase64(SecretKey key, byte[] plaintext, byte[] aad) {
+        return Base64.getEncoder().encodeToString(encrypt(key, plaintext, aad));
+    }
+
+    /**
+     * 解密Base64编码的密文
+     */
+    public static byte[] decryptFromBase64(SecretKey key, String data, byte[] aad) {
+        return decrypt(key, Base64.getDecoder().decode(data), aad);
+    }
+}
@@ -1,63 +1,115 @@
 package com.notp.util;
 
+import java.util.Arrays;
+
 /**
  * Base32编码解码工具类
- * 基于RFC4648标准实现
+ * 基于RFC4648标准实现，编码和解码都查表完成，不区分大小写
+ * 解码时跳过字母表以外的字符（填充符、空格、连字符等），可直接解码用户手工输入的分组密钥
+ * 除返回新对象的便捷方法外，均提供写入调用方缓冲区的版本，便于在热点路径上复用缓冲区
  *
  * @author sign
  */
 public class Base32 {
 
-    private static final String BASE32_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
-    private static final int[] BASE32_LOOKUP = {
-        0xFF, 0xFF, 0x1A, 0x1B, 0x1C, 0x1D, 0x1E, 0x1F, // '0', '1', '2', '3', '4', '5', '6', '7'
-        0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, // '8', '9', ':', ';', '<', '=', '>', '?'
-        0xFF, 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, // '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G'
-        0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D, 0x0E, // 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O'
-        0x0F, 0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, // 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W'
-        0x17, 0x18, 0x19, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, // 'X', 'Y', 'Z', '[', '\\', ']', '^', '_'
-        0xFF, 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, // '`', 'a', 'b', 'c', 'd', 'e', 'f', 'g'
-        0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D, 0x0E, // 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o'
-        0x0F, 0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, // 'p', 'q', 'r', 's', 't', 'u', 'v', 'w'
-        0x17, 0x18, 0x19  // 'x', 'y', 'z'
-    };
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".toCharArray();
+    private static final char PADDING = '=';
+    private static final byte INVALID = -1;
+    private static final byte[] LOOKUP = new byte[128];
+
+    static {
+        Arrays.fill(LOOKUP, INVALID);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            LOOKUP[ALPHABET[i]] = (byte) i;
+            LOOKUP[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+    }
 
     /**
-     * 编码字节数组为Base32字符串
+     * 编码字节数组为带填充的Base32字符串
      *
      * @param bytes 要编码的字节数组
      * @return Base32编码的字符串
      */
     public static String encode(byte[] bytes) {
+        return encode(bytes, true);
+    }
+
+    /**
+     * 编码字节数组为不带填充的Base32字符串（OTP密钥通常不带填充）
+     *
+     * @param bytes 要编码的字节数组
+     * @return Base32编码的字符串
+     */
+    public static String encodeNoPadding(byte[] bytes) {
+        return encode(bytes, false);
+    }
+
+    private static String encode(byte[] bytes, boolean padding) {
         if (bytes == null) {
             return "";
         }
+        char[] chars = new char[encodedLength(bytes.length, padding)];
+        encode(bytes, 0, bytes.length, chars, 0, padding);
+        return new String(chars);
+    }
 
-        StringBuilder result = new StringBuilder();
-        int buffer = 0;
-        int bitsLeft = 0;
-
-        for (byte b : bytes) {
-            buffer <<= 8;
-            buffer |= (b & 0xFF);
-            bitsLeft += 8;
+    /**
+     * 编码后的字符数
+     *
+     * @param length 原始字节数
+     * @param padding 是否补齐到8的倍数
+     * @return 字符数
+     */
+    public static int encodedLength(int length, boolean padding) {
+        return padding ? (length + 4) / 5 * 8 : (length * 8 + 4) / 5;
+    }
 
-            while (bitsLeft >= 5) {
-                result.append(BASE32_CHARS.charAt((buffer >> (bitsLeft - 5)) & 0x1F));
-                bitsLeft -= 5;
-            }
+    /**
+     * 编码到调用方提供的字符数组
+     *
+     * @param src 原始字节
+     * @param offset 起始位置
+     * @param length 字节数
+     * @param dst 目标字符数组，剩余空间不少于 {@link #encodedLength(int, boolean)}
+     * @param dstOffset 目标起始位置
+     * @param padding 是否补齐到8的倍数
+     * @return 写入的字符数
+     */
+    public static int encode(byte[] src, int offset, int length, char[] dst, int dstOffset, boolean padding) {
+        int required = encodedLength(length, padding);
+        if (dst.length - dstOffset < required) {
+            throw new IllegalArgumentException("Base32编码缓冲区不足，需要" + required + "个字符");
         }
-
-        if (bitsLeft > 0) {
-            result.append(BASE32_CHARS.charAt((buffer << (5 - bitsLeft)) & 0x1F));
+        int in = offset;
+        int out = dstOffset;
+        int end = offset + length;
+        // 每5字节正好对应8个字符，整组用一个long处理
+        while (end - in >= 5) {
+            long group = (src[in] & 0xFFL) << 32 | (src[in + 1] & 0xFFL) << 24 | (src[in + 2] & 0xFFL) << 16
+                    | (src[in + 3] & 0xFFL) << 8 | (src[in + 4] & 0xFFL);
+            for (int shift = 35; shift >= 0; shift -= 5) {
+                dst[out++] = ALPHABET[(int) (group >>> shift) & 0x1F];
+            }
+            in += 5;
         }
-
-        // 添加填充
-        while (result.length() % 8 != 0) {
-            result.append('=');
+        int remaining = end - in;
+        if (remaining > 0) {
+            long group = 0;
+            for (int i = 0; i < 5; i++) {
+                group = group << 8 | (i < remaining ? src[in + i] & 0xFFL : 0);
+            }
+            int chars = (remaining * 8 + 4) / 5;
+            for (int i = 0, shift = 35; i < chars; i++, shift -= 5) {
+                dst[out++] = ALPHABET[(int) (group >>> shift) & 0x1F];
+            }
+            if (padding) {
+                for (int i = chars; i < 8; i++) {
+                    dst[out++] = PADDING;
+                }
+            }
         }
-
-        return result.toString();
+        return out - dstOffset;
     }
 
     /**
@@ -66,37 +118,114 @@ public class Base32 {
      * @param base32 Base32编码的字符串
      * @return 解码后的字节数组
      */
-    public static byte[] decode(String base32) {
-        if (base32 == null || base32.isEmpty()) {
+    public static byte[] decode(CharSequence base32) {
+        if (base32 == null || base32.length() == 0) {
             return new byte[0];
         }
+        byte[] bytes = new byte[decodedLength(base32)];
+        decode(base32, bytes, 0);
+        return bytes;
+    }
 
-        base32 = base32.trim().replace("=", "").toUpperCase();
-        if (base32.isEmpty()) {
-            return new byte[0];
+    /**
+     * 解码后的字节数，不足一个字节的尾部位被丢弃
+     *
+     * @param base32 Base32编码的字符串
+     * @return 字节数
+     */
+    public static int decodedLength(CharSequence base32) {
+        int chars = 0;
+        for (int i = 0, length = base32.length(); i < length; i++) {
+            if (valueOf(base32.charAt(i)) != INVALID) {
+                chars++;
+            }
+        }
+        return chars * 5 / 8;
+    }
+
+    /**
+     * 解码后的字节数，不足一个字节的尾部位被丢弃
+     *
+     * @param base32 Base32字符
+     * @param offset 起始位置
+     * @param length 字符数
+     * @return 字节数
+     */
+    public static int decodedLength(char[] base32, int offset, int length) {
+        int chars = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (valueOf(base32[i]) != INVALID) {
+                chars++;
+            }
         }
+        return chars * 5 / 8;
+    }
 
-        byte[] bytes = new byte[base32.length() * 5 / 8];
+    /**
+     * 解码到调用方提供的字节数组
+     *
+     * @param base32 Base32编码的字符串
+     * @param dst 目标字节数组，剩余空间不少于 {@link #decodedLength(CharSequence)}
+     * @param dstOffset 目标起始位置
+     * @return 写入的字节数
+     */
+    public static int decode(CharSequence base32, byte[] dst, int dstOffset) {
+        int out = dstOffset;
         int buffer = 0;
         int bitsLeft = 0;
-        int count = 0;
-
-        for (char c : base32.toCharArray()) {
-            int value = c < 128 ? BASE32_LOOKUP[c] : 0xFF;
-            if (value == 0xFF) {
+        for (int i = 0, length = base32.length(); i < length; i++) {
+            int value = valueOf(base32.charAt(i));
+            if (value == INVALID) {
                 continue;
             }
-
-            buffer <<= 5;
-            buffer |= value;
+            buffer = buffer << 5 | value;
             bitsLeft += 5;
+            if (bitsLeft >= 8) {
+                bitsLeft -= 8;
+                out = put(dst, out, buffer >>> bitsLeft);
+            }
+        }
+        return out - dstOffset;
+    }
 
+    /**
+     * 解码到调用方提供的字节数组，密钥可保存在字符数组中并在使用后清零
+     *
+     * @param base32 Base32字符
+     * @param offset 起始位置
+     * @param length 字符数
+     * @param dst 目标字节数组，剩余空间不少于 {@link #decodedLength(char[], int, int)}
+     * @param dstOffset 目标起始位置
+     * @return 写入的字节数
+     */
+    public static int decode(char[] base32, int offset, int length, byte[] dst, int dstOffset) {
+        int out = dstOffset;
+        int buffer = 0;
+        int bitsLeft = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int value = valueOf(base32[i]);
+            if (value == INVALID) {
+                continue;
+            }
+            buffer = buffer << 5 | value;
+            bitsLeft += 5;
             if (bitsLeft >= 8) {
-                bytes[count++] = (byte) ((buffer >> (bitsLeft - 8)) & 0xFF);
                 bitsLeft -= 8;
+                out = put(dst, out, buffer >>> bitsLeft);
             }
         }
+        return out - dstOffset;
+    }
 
-        return bytes;
+    private static int valueOf(char c) {
+        return c < 128 ? LOOKUP[c] : INVALID;
+    }
+
+    private static int put(byte[] dst, int index, int value) {
+        if (index >= dst.length) {
+            throw new IllegalArgumentException("Base32解码缓冲区不足");
+        }
+        dst[index] = (byte) value;
+        return index + 1;
     }
 }
@@ -0,0 +1,38 @@
+package com.notp.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 按秒缓存的本地时间
+ * 响应中的时间戳只精确到秒，同一秒内的调用复用同一个LocalDateTime，
+ * 不再每次查询时区规则和构造日期对象
+ *
+ * @author sign
+ */
+public final class CachedClock {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static volatile Tick tick = new Tick(Long.MIN_VALUE, null);
+
+    private CachedClock() {
+    }
+
+    /**
+     * 当前本地时间（截断到秒）
+     */
+    public static LocalDateTime now() {
+        long second = Math.floorDiv(System.currentTimeMillis(), 1000L);
+        Tick current = tick;
+        if (current.second != second) {
+            current = new Tick(second, LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZONE));
+            tick = current;
+        }
+        return current.time;
+    }
+
+    private record Tick(long second, LocalDateTime time) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.notp.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * 以long为键、long为值的无锁哈希表
+ * 开放寻址，键槽通过CAS占用且不会被回收，值通过CAS更新；探测次数超限时落入溢出表。
+ * 表本身不做过期清理，由使用方整体替换（分代轮换）。未写入过的键的值视为0。
+ *
+ * @author sign
+ */
+public final class ConcurrentLongTable {
+
+    private static final long EMPTY = 0L;
+    private static final int MAX_PROBES = 16;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray values;
+    private final int mask;
+    private final ConcurrentHashMap<Long, AtomicLong> overflow = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity 槽位数，向上取整为2的幂
+     */
+    public ConcurrentLongTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.keys = new AtomicLongArray(size);
+        this.values = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 读取键对应的值，不存在时返回0
+     */
+    public long get(long key) {
+        if (key != EMPTY) {
+            int index = index(key);
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                long current = keys.get(index);
+                if (current == key) {
+                    return values.get(index);
+                }
+                if (current == EMPTY) {
+                    return 0L;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+        AtomicLong value = overflow.get(key);
+        return value == null ? 0L : value.get();
+    }
+
+    /**
+     * 仅当新值大于当前值时写入
+     *
+     * @return 是否写入成功
+     */
+    public boolean advance(long key, long value) {
+        int slot = claim(key);
+        if (slot < 0) {
+            AtomicLong holder = overflow.computeIfAbsent(key, k -> new AtomicLong());
+            long current;
+            do {
+                current = holder.get();
+                if (value <= current) {
+                    return false;
+                }
+            } while (!holder.compareAndSet(current, value));
+            return true;
+        }
+        long current;
+        do {
+            current = values.get(slot);
+            if (value <= current) {
+                return false;
+            }
+        } while (!values.compareAndSet(slot, current, value));
+        return true;
+    }
+
+    /**
+     * 以CAS方式原子更新键对应的值
+     *
+     * @return 更新后的值
+     */
+    public long updateAndGet(long key, LongUnaryOperator operator) {
+        int slot = claim(key);
+        if (slot < 0) {
+            return overflow.computeIfAbsent(key, k -> new AtomicLong()).updateAndGet(operator);
+        }
+        return values.updateAndGet(slot, operator);
+    }
+
+    /**
+     * 查找或占用键所在槽位
+     *
+     * @return 槽位下标，探测超限时返回-1
+     */
+    private int claim(long key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int index = index(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            long current = keys.get(index);
+            if (current == key) {
+                return index;
+            }
+            if (current == EMPTY) {
+                if (keys.compareAndSet(index, EMPTY, key)) {
+                    return index;
+                }
+                if (keys.get(index) == key) {
+                    return index;
+                }
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,131 @@
+package com.notp.util;
+
+import com.notp.constant.OtpAlgorithm;
+import com.notp.constant.OtpType;
+
+/**
+ * OTP参数组合（类型、算法、位数、时间步长）
+ * 所有合法组合在类加载时预先创建，每个组合持有一个已确定模数和Mac算法的计算引擎；
+ * 解析只在加载用户配置时进行一次，验证路径直接使用引擎，不再解析字符串或查找算法
+ *
+ * @author sign
+ */
+public final class OtpProfile {
+
+    /**
+     * 支持的最大时间步长（秒）
+     */
+    public static final int MAX_PERIOD = 60;
+
+    private static final int[] DIGITS = {6, 8};
+    private static final int[] PERIODS = {30, MAX_PERIOD};
+    private static final OtpProfile[] PROFILES;
+
+    static {
+        OtpType[] types = OtpType.values();
+        OtpAlgorithm[] algorithms = OtpAlgorithm.values();
+        PROFILES = new OtpProfile[types.length * algorithms.length * DIGITS.length * PERIODS.length];
+        for (OtpType type : types) {
+            for (OtpAlgorithm algorithm : algorithms) {
+                for (int d = 0; d < DIGITS.length; d++) {
+                    for (int p = 0; p < PERIODS.length; p++) {
+                        PROFILES[index(type, algorithm, d, p)] = new OtpProfile(type, algorithm, DIGITS[d], PERIODS[p]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 默认参数：TOTP、SHA512、6位、30秒
+     */
+    public static final OtpProfile DEFAULT = of(OtpType.TOTP, OtpAlgorithm.SHA512, 6, 30);
+
+    private final OtpType type;
+    private final OtpAlgorithm algorithm;
+    private final int digits;
+    private final int period;
+    private final TotpEngine engine;
+
+    private OtpProfile(OtpType type, OtpAlgorithm algorithm, int digits, int period) {
+        this.type = type;
+        this.algorithm = algorithm;
+        this.digits = digits;
+        this.period = period;
+        this.engine = new TotpEngine(algorithm.getMacAlgorithm(), digits, period);
+    }
+
+    /**
+     * 获取参数组合
+     *
+     * @param type OTP类型
+     * @param algorithm 哈希算法
+     * @param digits 验证码位数（6或8）
+     * @param period 时间步长秒数（30或60），HOTP忽略
+     */
+    public static OtpProfile of(OtpType type, OtpAlgorithm algorithm, int digits, int period) {
+        int d = indexOf(DIGITS, digits);
+        if (d < 0) {
+            throw new IllegalArgumentException("验证码位数只支持6或8: " + digits);
+        }
+        int p = indexOf(PERIODS, period);
+        if (p < 0) {
+            throw new IllegalArgumentException("时间步长只支持30或60秒: " + period);
+        }
+        return PROFILES[index(type, algorithm, d, p)];
+    }
+
+    /**
+     * 由数据库字段解析参数组合，字段为空时使用默认值（兼容升级前的记录）
+     */
+    public static OtpProfile of(String type, String algorithm, Integer digits, Integer period) {
+        return of(OtpType.fromValue(type), OtpAlgorithm.fromValue(algorithm),
+                digits == null ? DEFAULT.digits : digits, period == null ? DEFAULT.period : period);
+    }
+
+    public OtpType getType() {
+        return type;
+    }
+
+    public OtpAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getDigits() {
+        return digits;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * 该参数组合的计算引擎
+     */
+    public TotpEngine getEngine() {
+        return engine;
+    }
+
+    public boolean isCounterBased() {
+        return type == OtpType.HOTP;
+    }
+
+    @Override
+    public String toString() {
+        return type.getValue() + "/" + algorithm.getValue() + "/" + digits + "/" + period;
+    }
+
+    private static int index(OtpType type, OtpAlgorithm algorithm, int digitsIndex, int periodIndex) {
+        return ((type.ordinal() * OtpAlgorithm.values().length + algorithm.ordinal()) * DIGITS.length + digitsIndex)
+                * PERIODS.length + periodIndex;
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -6,10 +6,20 @@ import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.notp.constant.QrCodeFormat;
+import com.notp.vo.QrModuleMatrix;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 
 /**
@@ -19,8 +29,9 @@ import java.util.Map;
  */
 public class QrCodeUtil {
 
-    private static final int QR_CODE_SIZE = 300; // 二维码尺寸
+    public static final int QR_CODE_SIZE = 300; // 二维码尺寸
     private static final String QR_CODE_FORMAT = "PNG"; // 二维码格式
+    private static final int QR_CODE_MARGIN = 2; // 静区模块数
 
     /**
      * 生成二维码图片
@@ -62,13 +73,7 @@ public class QrCodeUtil {
      */
     public static byte[] generateQRCodeImage(String text, int width, int height) {
         try {
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
-            hints.put(EncodeHintType.MARGIN, 2); // 增加边距
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, width, height, hints);
+            BitMatrix bitMatrix = encode(text, width, height);
 
             ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
             MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
@@ -78,6 +83,134 @@ public class QrCodeUtil {
         }
     }
 
+    /**
+     * 生成指定尺寸的1位索引色PNG二维码
+     * 直接按位写入黑白位图，体积明显小于RGB格式
+     *
+     * @param text 二维码内容
+     * @param width 宽度
+     * @param height 高度
+     * @return PNG字节数组
+     */
+    public static byte[] generateMonochromePng(String text, int width, int height) {
+        try {
+            BitMatrix bitMatrix = encode(text, width, height);
+            int w = bitMatrix.getWidth();
+            int h = bitMatrix.getHeight();
+
+            // TYPE_BYTE_BINARY 默认调色板: 0-黑 1-白
+            BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY);
+            byte[] raster = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            int stride = (w + 7) >> 3;
+            Arrays.fill(raster, (byte) 0xFF);
+            for (int y = 0; y < h; y++) {
+                int rowOffset = y * stride;
+                for (int x = 0; x < w; x++) {
+                    if (bitMatrix.get(x, y)) {
+                        raster[rowOffset + (x >> 3)] &= (byte) ~(0x80 >>> (x & 7));
+                    }
+                }
+            }
+
+            ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
+            ImageIO.write(image, QR_CODE_FORMAT, pngOutputStream);
+            return pngOutputStream.toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException("生成二维码失败", e);
+        }
+    }
+
+    /**
+     * 生成SVG格式的二维码
+     * 每行连续的深色模块合并为一段线条，视图坐标以模块为单位，可任意缩放
+     *
+     * @param text 二维码内容
+     * @return SVG字符串
+     */
+    public static String generateSvg(String text) {
+        BitMatrix modules = encodeModules(text);
+        int n = modules.getWidth();
+
+        // 每段深色模块画成1个模块宽的水平线：行内首段用绝对坐标，后续段用相对位移
+        StringBuilder svg = new StringBuilder(256 + n * n / 2);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ").append(n).append(' ').append(n)
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>")
+                .append("<path stroke=\"#000\" d=\"");
+        for (int y = 0; y < n; y++) {
+            int x = 0;
+            int penX = -1;
+            while (x < n) {
+                if (!modules.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < n && modules.get(x, y)) {
+                    x++;
+                }
+                if (penX < 0) {
+                    svg.append('M').append(start).append(' ').append(y).append(".5");
+                } else {
+                    svg.append('m').append(start - penX).append(" 0");
+                }
+                svg.append('h').append(x - start);
+                penX = x;
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString();
+    }
+
+    /**
+     * 生成二维码模块位图
+     *
+     * @param text 二维码内容
+     * @return 模块位图（每模块1位，含静区）
+     */
+    public static QrModuleMatrix generateModuleMatrix(String text) {
+        BitMatrix modules = encodeModules(text);
+        int n = modules.getWidth();
+        int rowBytes = (n + 7) >> 3;
+
+        byte[] bits = new byte[rowBytes * n];
+        for (int y = 0; y < n; y++) {
+            int rowOffset = y * rowBytes;
+            for (int x = 0; x < n; x++) {
+                if (modules.get(x, y)) {
+                    bits[rowOffset + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+
+        QrModuleMatrix matrix = new QrModuleMatrix();
+        matrix.setSize(n);
+        matrix.setMargin(QR_CODE_MARGIN);
+        matrix.setRowBytes(rowBytes);
+        matrix.setData(Base64.getEncoder().encodeToString(bits));
+        return matrix;
+    }
+
+    /**
+     * 按模块编码二维码，每个模块对应1个像素（含静区）
+     */
+    public static BitMatrix encodeModules(String text) {
+        return encode(text, 0, 0);
+    }
+
+    private static BitMatrix encode(String text, int width, int height) {
+        try {
+            Map<EncodeHintType, Object> hints = new HashMap<>();
+            hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+            hints.put(EncodeHintType.MARGIN, QR_CODE_MARGIN); // 增加边距
+            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+
+            return new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, width, height, hints);
+        } catch (Exception e) {
+            throw new RuntimeException("生成二维码失败", e);
+        }
+    }
+
     /**
      * 生成指定尺寸的Base64二维码
      *
@@ -94,4 +227,47 @@ public class QrCodeUtil {
             throw new RuntimeException("生成Base64二维码失败", e);
         }
     }
+
+    /**
+     * 计算二维码内容与尺寸的指纹（SHA-256十六进制）
+     * 相同内容和尺寸渲染出的图片相同，可用作缓存键和ETag
+     *
+     * @param text 二维码内容
+     * @param width 宽度
+     * @param height 高度
+     * @return 指纹
+     */
+    public static String fingerprint(String text, int width, int height) {
+        return fingerprint(text, width, height, QrCodeFormat.PNG);
+    }
+
+    /**
+     * 计算二维码内容、尺寸与输出格式的指纹，格式与尺寸无关时传0
+     *
+     * @param text 二维码内容
+     * @param size 图片边长
+     * @param format 输出格式
+     * @return 指纹
+     */
+    public static String fingerprint(String text, int size, QrCodeFormat format) {
+        return fingerprint(text, size, size, format);
+    }
+
+    private static String fingerprint(String text, int width, int height, QrCodeFormat format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '|');
+            digest.update(Integer.toString(width).getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) 'x');
+            digest.update(Integer.toString(height).getBytes(StandardCharsets.US_ASCII));
+            if (format != QrCodeFormat.PNG) {
+                digest.update((byte) '|');
+                digest.update(format.getValue().getBytes(StandardCharsets.US_ASCII));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("计算二维码指纹失败", e);
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package com.notp.util;
+
+/**
+ * 某一时间步长内预先计算好的验证码窗口
+ * 包含 [counter - window, counter + window] 范围内的全部验证码，
+ * 仅在计数器（时间步长）不变时有效，步长切换后由调用方重新计算
+ *
+ * @author sign
+ */
+public final class TotpCodeWindow {
+
+    private final long counter;
+    private final int window;
+    private final int[] codes;
+
+    TotpCodeWindow(long counter, int window, int[] codes) {
+        this.counter = counter;
+        this.window = window;
+        this.codes = codes;
+    }
+
+    /**
+     * 是否可用于指定计数器和窗口大小
+     */
+    public boolean isValidFor(long counter, int window) {
+        return this.counter == counter && this.window == window;
+    }
+
+    /**
+     * 查找与验证码匹配的计数器，优先检查当前计数器
+     *
+     * @param code 验证码
+     * @return 匹配的计数器，未匹配时返回 {@link TotpEngine#NO_MATCH}
+     */
+    public long match(int code) {
+        if (codes[window] == code) {
+            return counter;
+        }
+        for (int i = 1; i <= window; i++) {
+            if (codes[window - i] == code) {
+                return counter - i;
+            }
+            if (codes[window + i] == code) {
+                return counter + i;
+            }
+        }
+        return TotpEngine.NO_MATCH;
+    }
+}
@@ -0,0 +1,336 @@
+package com.notp.util;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TOTP计算引擎
+ * Mac实例及其输入输出缓冲区放在无锁池中复用，密钥以解码后的字节传入，
+ * 验证码直接以int计算和比较，一次验证几乎不产生对象分配。
+ * 不使用ThreadLocal：虚拟线程每个请求一个线程，ThreadLocal会让每次验证都新建Mac
+ *
+ * @author sign
+ */
+public final class TotpEngine {
+
+    /**
+     * 未匹配到任何时间窗口
+     */
+    public static final long NO_MATCH = Long.MIN_VALUE;
+
+    /**
+     * 借出/归还Mac时最多探测的槽位数
+     */
+    private static final int POOL_PROBES = 4;
+
+    private static final int[] POWERS_OF_TEN = {
+            1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000
+    };
+
+    private final String algorithm;
+    private final int digits;
+    private final int modulus;
+    private final int timeStep;
+    private final long timeStepMillis;
+    private final AtomicReferenceArray<MacHolder> pool;
+    private final int poolMask;
+    /**
+     * 所有引擎共享的HMAC计算计数
+     */
+    private static final LongAdder COMPUTATIONS = new LongAdder();
+
+    public TotpEngine(String algorithm, int digits, int timeStep) {
+        if (digits < 1 || digits >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("验证码位数不合法: " + digits);
+        }
+        if (timeStep <= 0) {
+            throw new IllegalArgumentException("时间步长必须大于0: " + timeStep);
+        }
+        this.algorithm = algorithm;
+        this.digits = digits;
+        this.modulus = POWERS_OF_TEN[digits];
+        this.timeStep = timeStep;
+        this.timeStepMillis = timeStep * 1000L;
+        // 提前校验算法可用，避免在验证路径上才抛出异常
+        newMac(algorithm);
+        int slots = Integer.highestOneBit(Math.max(8, Runtime.getRuntime().availableProcessors() * 2) - 1) << 1;
+        this.pool = new AtomicReferenceArray<>(slots);
+        this.poolMask = slots - 1;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getDigits() {
+        return digits;
+    }
+
+    public int getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * 所有引擎累计的HMAC计算次数
+     */
+    public static long getTotalComputations() {
+        return COMPUTATIONS.sum();
+    }
+
+    /**
+     * 当前时间对应的计数器
+     */
+    public long currentCounter() {
+        return counterAt(System.currentTimeMillis());
+    }
+
+    /**
+     * 指定时间（毫秒）对应的计数器
+     */
+    public long counterAt(long epochMillis) {
+        return epochMillis / timeStepMillis;
+    }
+
+    /**
+     * 计算指定计数器的验证码
+     *
+     * @param key 解码后的密钥字节，调用方不得在之后修改其内容
+     * @param counter 计数器
+     * @return 截断后的验证码
+     */
+    public int generate(byte[] key, long counter) {
+        int slot = slot();
+        MacHolder holder = acquire(slot);
+        try {
+            COMPUTATIONS.increment();
+            return holder.compute(key, counter, algorithm) % modulus;
+        } finally {
+            release(slot, holder);
+        }
+    }
+
+    /**
+     * 在 [counter - window, counter + window] 范围内查找与验证码匹配的计数器
+     * 优先检查当前计数器，再向两侧扩展
+     *
+     * @param key 解码后的密钥字节
+     * @param code 验证码
+     * @param counter 当前计数器
+     * @param window 允许的前后窗口数
+     * @return 匹配的计数器，未匹配时返回 {@link #NO_MATCH}
+     */
+    public long match(byte[] key, int code, long counter, int window) {
+        if (code < 0 || code >= modulus) {
+            return NO_MATCH;
+        }
+        int slot = slot();
+        MacHolder holder = acquire(slot);
+        try {
+            COMPUTATIONS.increment();
+            if (holder.compute(key, counter, algorithm) % modulus == code) {
+                return counter;
+            }
+            for (int i = 1; i <= window; i++) {
+                COMPUTATIONS.increment();
+                if (holder.compute(key, counter - i, algorithm) % modulus == code) {
+                    return counter - i;
+                }
+                COMPUTATIONS.increment();
+                if (holder.compute(key, counter + i, algorithm) % modulus == code) {
+                    return counter + i;
+                }
+            }
+            return NO_MATCH;
+        } finally {
+            release(slot, holder);
+        }
+    }
+
+    /**
+     * 在 [counter, counter + lookAhead] 范围内按顺序查找与验证码匹配的计数器（HOTP）
+     *
+     * @param key 解码后的密钥字节
+     * @param code 验证码
+     * @param counter 下一个期望的计数器
+     * @param lookAhead 允许向后跳过的计数器数
+     * @return 匹配的计数器，未匹配时返回 {@link #NO_MATCH}
+     */
+    public long matchForward(byte[] key, int code, long counter, int lookAhead) {
+        if (code < 0 || code >= modulus) {
+            return NO_MATCH;
+        }
+        int slot = slot();
+        MacHolder holder = acquire(slot);
+        try {
+            for (int i = 0; i <= lookAhead; i++) {
+                COMPUTATIONS.increment();
+                if (holder.compute(key, counter + i, algorithm) % modulus == code) {
+                    return counter + i;
+                }
+            }
+            return NO_MATCH;
+        } finally {
+            release(slot, holder);
+        }
+    }
+
+    /**
+     * 预先计算 [counter - window, counter + window] 范围内的全部验证码
+     *
+     * @param key 解码后的密钥字节
+     * @param counter 当前计数器
+     * @param window 允许的前后窗口数
+     * @return 验证码窗口
+     */
+    public TotpCodeWindow window(byte[] key, long counter, int window) {
+        int[] codes = new int[window * 2 + 1];
+        int slot = slot();
+        MacHolder holder = acquire(slot);
+        try {
+            COMPUTATIONS.add(codes.length);
+            for (int i = -window; i <= window; i++) {
+                codes[i + window] = holder.compute(key, counter + i, algorithm) % modulus;
+            }
+        } finally {
+            release(slot, holder);
+        }
+        return new TotpCodeWindow(counter, window, codes);
+    }
+
+    /**
+     * 在 [counter - window, counter + window] 范围内验证
+     */
+    public boolean verify(byte[] key, int code, long counter, int window) {
+        return match(key, code, counter, window) != NO_MATCH;
+    }
+
+    /**
+     * 解析验证码字符串
+     *
+     * @param code 验证码字符串
+     * @return 验证码数值，格式不正确时返回-1
+     */
+    public int parseCode(CharSequence code) {
+        if (code == null || code.length() != digits) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 校验数值形式的验证码
+     *
+     * @param code 验证码数值
+     * @return 验证码数值，不在 [0, 10^位数) 范围内时返回-1
+     */
+    public int parseCode(int code) {
+        return code >= 0 && code < modulus ? code : -1;
+    }
+
+    /**
+     * 将验证码格式化为定长数字字符串（左侧补0）
+     */
+    public String format(int code) {
+        char[] chars = new char[digits];
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + code % 10);
+            code /= 10;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 按线程ID散列选择起始槽位，同一线程总是从同一槽位借还，平台线程下基本不产生竞争
+     */
+    private int slot() {
+        long id = Thread.currentThread().getId();
+        return (int) (id * 0x9E3779B97F4A7C15L >>> 40);
+    }
+
+    private MacHolder acquire(int slot) {
+        for (int i = 0; i < POOL_PROBES; i++) {
+            int index = (slot + i) & poolMask;
+            MacHolder holder = pool.get(index);
+            if (holder != null && pool.compareAndSet(index, holder, null)) {
+                return holder;
+            }
+        }
+        return new MacHolder(newMac(algorithm));
+    }
+
+    private void release(int slot, MacHolder holder) {
+        for (int i = 0; i < POOL_PROBES; i++) {
+            int index = (slot + i) & poolMask;
+            if (pool.get(index) == null && pool.compareAndSet(index, null, holder)) {
+                return;
+            }
+        }
+        // 池已满时直接丢弃，只在并发计算数超过槽位数时发生
+    }
+
+    private static Mac newMac(String algorithm) {
+        try {
+            return Mac.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("不支持的HMAC算法: " + algorithm, e);
+        }
+    }
+
+    /**
+     * 池中的Mac及缓冲区，同一时刻只被一个线程借用
+     * 记录最近一次初始化所用的密钥引用，同一密钥连续计算时无需重新初始化
+     */
+    private static final class MacHolder {
+
+        private final Mac mac;
+        private final byte[] message = new byte[8];
+        private final byte[] digest;
+        private byte[] key;
+
+        private MacHolder(Mac mac) {
+            this.mac = mac;
+            this.digest = new byte[mac.getMacLength()];
+        }
+
+        private int compute(byte[] key, long counter, String algorithm) {
+            try {
+                if (this.key != key) {
+                    mac.init(new SecretKeySpec(key, algorithm));
+                    this.key = key;
+                }
+                for (int i = 7; i >= 0; i--) {
+                    message[i] = (byte) counter;
+                    counter >>>= 8;
+                }
+                mac.update(message);
+                mac.doFinal(digest, 0);
+            } catch (InvalidKeyException | ShortBufferException e) {
+                this.key = null;
+                throw new IllegalStateException("计算TOTP验证码失败", e);
+            } catch (IllegalArgumentException e) {
+                // 空密钥等情况由SecretKeySpec抛出
+                this.key = null;
+                throw e;
+            }
+
+            int offset = digest[digest.length - 1] & 0xf;
+            return ((digest[offset] & 0x7f) << 24)
+                    | ((digest[offset + 1] & 0xff) << 16)
+                    | ((digest[offset + 2] & 0xff) << 8)
+                    | (digest[offset + 3] & 0xff);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.notp.vo;
+
+import lombok.Data;
+
+/**
+ * OTP批量验证单项结果VO
+ *
+ * @author sign
+ */
+@Data
+public class OtpBatchVerifyResult {
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 是否验证通过
+     */
+    private Boolean valid;
+
+    /**
+     * 结果码
+     */
+    private String code;
+
+    /**
+     * 结果消息
+     */
+    private String message;
+
+    public static OtpBatchVerifyResult of(Long userId, OtpVerifyResult<?> result) {
+        OtpBatchVerifyResult item = new OtpBatchVerifyResult();
+        item.setUserId(userId);
+        item.setValid(result.isSuccess());
+        item.setCode(result.getCode());
+        item.setMessage(result.getMessage());
+        return item;
+    }
+}
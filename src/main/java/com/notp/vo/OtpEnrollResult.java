@@ -0,0 +1,67 @@
+package com.notp.vo;
+
+import lombok.Data;
+
+/**
+ * OTP批量启用单项结果VO
+ *
+ * @author sign
+ */
+@Data
+public class OtpEnrollResult {
+
+    /**
+     * 已启用
+     */
+    public static final String ENROLLED = "ENROLLED";
+
+    /**
+     * 已处于启用状态，未重新生成密钥
+     */
+    public static final String SKIPPED = "SKIPPED";
+
+    /**
+     * 启用失败
+     */
+    public static final String FAILED = "FAILED";
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 处理状态（ENROLLED/SKIPPED/FAILED）
+     */
+    private String status;
+
+    /**
+     * OTP密钥，仅ENROLLED时有值
+     */
+    private String secret;
+
+    /**
+     * OTP URL，仅ENROLLED时有值
+     */
+    private String qrCodeUrl;
+
+    /**
+     * 结果消息
+     */
+    private String message;
+
+    public static OtpEnrollResult enrolled(Long userId, String secret, String qrCodeUrl) {
+        OtpEnrollResult result = of(userId, ENROLLED, "OTP启用成功");
+        result.setSecret(secret);
+        result.setQrCodeUrl(qrCodeUrl);
+        return result;
+    }
+
+    public static OtpEnrollResult of(Long userId, String status, String message) {
+        OtpEnrollResult result = new OtpEnrollResult();
+        result.setUserId(userId);
+        result.setStatus(status);
+        result.setMessage(message);
+        return result;
+    }
+}
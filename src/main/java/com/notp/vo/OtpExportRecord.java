@@ -0,0 +1,69 @@
+package com.notp.vo;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * OTP配置导出记录VO
+ *
+ * @author sign
+ */
+@Data
+public class OtpExportRecord {
+
+    /**
+     * 主键ID，续传时作为afterId传入
+     */
+    private Long id;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * OTP密钥：redact时为null，plain时为Base32明文，encrypt时为Base64编码的AES-GCM密文
+     */
+    private String secret;
+
+    /**
+     * OTP类型（totp/hotp）
+     */
+    private String otpType;
+
+    /**
+     * 哈希算法
+     */
+    private String algorithm;
+
+    /**
+     * 验证码位数
+     */
+    private Integer digits;
+
+    /**
+     * 时间步长（秒）
+     */
+    private Integer period;
+
+    /**
+     * 下一个期望的HOTP计数器
+     */
+    private Long counter;
+
+    /**
+     * 是否启用
+     */
+    private Boolean enabled;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+}
@@ -0,0 +1,17 @@
+package com.notp.vo;
+
+/**
+ * OTP状态接口响应数据
+ * 由 OtpResponseConverter 直接写出，字段与原 Map 响应一致
+ *
+ * @param enabled 是否已启用OTP
+ * @param userId 用户ID
+ * @param timestamp 响应时间（毫秒）
+ * @author sign
+ */
+public record OtpStatusResponse(boolean enabled, Long userId, long timestamp) {
+
+    public static OtpStatusResponse of(Long userId, boolean enabled) {
+        return new OtpStatusResponse(enabled, userId, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,20 @@
+package com.notp.vo;
+
+/**
+ * OTP验证接口响应数据
+ * 由 OtpResponseConverter 直接写出，字段与原 Map 响应一致
+ *
+ * @param valid 是否验证通过
+ * @param userId 用户ID
+ * @param timestamp 响应时间（毫秒）
+ * @param code 验证结果代码
+ * @param message 验证结果消息
+ * @author sign
+ */
+public record OtpVerifyResponse(boolean valid, Long userId, long timestamp, String code, String message) {
+
+    public static OtpVerifyResponse of(Long userId, OtpVerifyResult<?> result) {
+        return new OtpVerifyResponse(result.isSuccess(), userId, System.currentTimeMillis(),
+                result.getCode(), result.getMessage());
+    }
+}
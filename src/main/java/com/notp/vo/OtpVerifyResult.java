@@ -2,6 +2,7 @@ package com.notp.vo;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.notp.constant.OtpErrorCode;
+import com.notp.util.CachedClock;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -32,7 +33,7 @@ public class OtpVerifyResult<T> {
     private T data;
 
     /**
-     * 时间戳
+     * 时间戳（精确到秒，同一秒内共享同一对象）
      */
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
@@ -58,7 +59,7 @@ public class OtpVerifyResult<T> {
         result.setCode("0000");
         result.setMessage(message);
         result.setData(data);
-        result.setTimestamp(LocalDateTime.now());
+        result.setTimestamp(CachedClock.now());
         return result;
     }
 
@@ -74,7 +75,7 @@ public class OtpVerifyResult<T> {
         result.setCode(code);
         result.setMessage(message);
         result.setData(data);
-        result.setTimestamp(LocalDateTime.now());
+        result.setTimestamp(CachedClock.now());
         return result;
     }
 
@@ -0,0 +1,61 @@
+package com.notp.vo;
+
+import com.notp.constant.QrCodeFormat;
+import lombok.Getter;
+
+/**
+ * 已渲染的二维码图片
+ *
+ * @author sign
+ */
+@Getter
+public final class QrCodeImage {
+
+    /**
+     * 内容、尺寸与格式的指纹，用作缓存键和ETag
+     */
+    private final String fingerprint;
+
+    /**
+     * 输出格式
+     */
+    private final QrCodeFormat format;
+
+    /**
+     * 响应内容字节（PNG图片、SVG文本或模块位图JSON）
+     */
+    private final byte[] content;
+
+    /**
+     * Data URI（data:image/png;base64,...），模块位图格式为null
+     */
+    private final String dataUri;
+
+    /**
+     * 模块位图，仅模块位图格式有值
+     */
+    private final QrModuleMatrix moduleMatrix;
+
+    public QrCodeImage(String fingerprint, QrCodeFormat format, byte[] content, String dataUri,
+                       QrModuleMatrix moduleMatrix) {
+        this.fingerprint = fingerprint;
+        this.format = format;
+        this.content = content;
+        this.dataUri = dataUri;
+        this.moduleMatrix = moduleMatrix;
+    }
+
+    /**
+     * 嵌入JSON响应时使用的值：图片格式为Data URI，模块位图格式为位图对象
+     */
+    public Object getEmbeddable() {
+        return moduleMatrix != null ? moduleMatrix : dataUri;
+    }
+
+    /**
+     * 缓存占用的近似字节数
+     */
+    public int weight() {
+        return content.length + (dataUri == null ? content.length : dataUri.length()) + fingerprint.length();
+    }
+}
@@ -0,0 +1,41 @@
+package com.notp.vo;
+
+import lombok.Data;
+
+/**
+ * 二维码模块位图VO
+ * 每个模块1位（1为深色），按行从高位到低位打包，行末不足一字节补0，整体Base64编码，由客户端自行绘制
+ *
+ * @author sign
+ */
+@Data
+public class QrModuleMatrix {
+
+    /**
+     * 每行/每列模块数（含静区）
+     */
+    private Integer size;
+
+    /**
+     * 四周静区模块数
+     */
+    private Integer margin;
+
+    /**
+     * 每行字节数
+     */
+    private Integer rowBytes;
+
+    /**
+     * Base64编码的位图数据
+     */
+    private String data;
+
+    /**
+     * 转换为JSON字符串
+     */
+    public String toJson() {
+        return "{\"size\":" + size + ",\"margin\":" + margin + ",\"rowBytes\":" + rowBytes
+                + ",\"data\":\"" + data + "\"}";
+    }
+}
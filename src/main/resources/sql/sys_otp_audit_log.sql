@@ -0,0 +1,12 @@
+-- OTP验证审计日志表
+CREATE TABLE IF NOT EXISTS `sys_otp_audit_log` (
+    `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `user_id` bigint(20) NOT NULL COMMENT '用户ID',
+    `outcome` varchar(8) NOT NULL COMMENT '验证结果(OtpErrorCode代码，0000为成功)',
+    `client_ip` varchar(45) DEFAULT NULL COMMENT '客户端IP，批量验证时为空',
+    `time_step` bigint(20) DEFAULT NULL COMMENT '验证时的时间步长(TOTP)或期望计数器(HOTP)',
+    `verify_time` datetime(3) NOT NULL COMMENT '验证时间',
+    PRIMARY KEY (`id`),
+    KEY `idx_user_time` (`user_id`, `verify_time`),
+    KEY `idx_verify_time` (`verify_time`)
+) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='OTP验证审计日志表';
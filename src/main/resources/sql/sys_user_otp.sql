@@ -2,10 +2,36 @@
 CREATE TABLE IF NOT EXISTS `sys_user_otp` (
     `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
     `user_id` bigint(20) NOT NULL COMMENT '用户ID',
-    `secret` varchar(110) NOT NULL COMMENT 'OTP密钥',
+    `secret` varchar(255) NOT NULL COMMENT 'OTP密钥（key_version为0时为Base32明文，否则为AES-GCM密文）',
+    `key_version` int(11) NOT NULL DEFAULT 0 COMMENT '加密所用数据密钥版本(0-明文)',
+    `otp_type` varchar(8) NOT NULL DEFAULT 'totp' COMMENT 'OTP类型(totp/hotp)',
+    `algorithm` varchar(16) NOT NULL DEFAULT 'SHA512' COMMENT '哈希算法(SHA1/SHA256/SHA512)',
+    `digits` tinyint(4) NOT NULL DEFAULT 6 COMMENT '验证码位数(6/8)',
+    `period` int(11) NOT NULL DEFAULT 30 COMMENT '时间步长秒数(30/60)，仅TOTP',
+    `counter` bigint(20) NOT NULL DEFAULT 0 COMMENT '下一个期望的计数器，仅HOTP',
     `enabled` tinyint(1) DEFAULT 0 COMMENT '是否启用(0-禁用 1-启用)',
     `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
-    UNIQUE KEY `uk_user_id` (`user_id`)
-) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='用户OTP配置表';
\ No newline at end of file
+    UNIQUE KEY `uk_user_id` (`user_id`),
+    KEY `idx_key_version` (`key_version`)
+) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='用户OTP配置表';
+
+-- 从旧版本升级：加宽secret列并增加key_version列，已有记录为明文(0)，由后台任务重新加密
+-- ALTER TABLE `sys_user_otp`
+--     MODIFY COLUMN `secret` varchar(255) NOT NULL COMMENT 'OTP密钥（key_version为0时为Base32明文，否则为AES-GCM密文）',
+--     ADD COLUMN `key_version` int(11) NOT NULL DEFAULT 0 COMMENT '加密所用数据密钥版本(0-明文)' AFTER `secret`;
+
+-- 从旧版本升级：增加OTP参数列，已有记录使用默认参数（TOTP、SHA512、6位、30秒）
+-- ALTER TABLE `sys_user_otp`
+--     ADD COLUMN `otp_type` varchar(8) NOT NULL DEFAULT 'totp' COMMENT 'OTP类型(totp/hotp)' AFTER `key_version`,
+--     ADD COLUMN `algorithm` varchar(16) NOT NULL DEFAULT 'SHA512' COMMENT '哈希算法(SHA1/SHA256/SHA512)' AFTER `otp_type`,
+--     ADD COLUMN `digits` tinyint(4) NOT NULL DEFAULT 6 COMMENT '验证码位数(6/8)' AFTER `algorithm`,
+--     ADD COLUMN `period` int(11) NOT NULL DEFAULT 30 COMMENT '时间步长秒数(30/60)，仅TOTP' AFTER `digits`,
+--     ADD COLUMN `counter` bigint(20) NOT NULL DEFAULT 0 COMMENT '下一个期望的计数器，仅HOTP' AFTER `period`;
+
+-- 已按旧版脚本创建idx_user_enabled的库：该索引与uk_user_id前缀相同，按user_id等值查询时不会被选用，只增加写入开销
+-- ALTER TABLE `sys_user_otp` DROP KEY `idx_user_enabled`;
+
+-- 从旧版本升级：后台重新加密任务按数据密钥版本查找待处理记录，没有待处理记录时不扫描全表
+-- ALTER TABLE `sys_user_otp` ADD KEY `idx_key_version` (`key_version`);
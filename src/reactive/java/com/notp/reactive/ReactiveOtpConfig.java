@@ -0,0 +1,57 @@
+package com.notp.reactive;
+
+import com.notp.config.OtpProperties;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 响应式OTP接口配置
+ * 仅在响应式Web应用（spring.main.web-application-type=reactive）中生效，此时servlet版OtpController不加载
+ *
+ * @author sign
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOtpConfig {
+
+    /**
+     * 执行HMAC验证、二维码渲染及OtpService阻塞调用的有界调度器，不占用事件循环线程
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler otpScheduler(OtpProperties properties) {
+        OtpProperties.Reactive config = properties.getReactive();
+        int threads = config.getSchedulerThreads() > 0
+                ? config.getSchedulerThreads() : Runtime.getRuntime().availableProcessors() * 2;
+        return Schedulers.newBoundedElastic(threads, config.getSchedulerQueueSize(), "otp-reactive");
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> otpRoutes(ReactiveOtpHandler handler) {
+        return RouterFunctions.route()
+                .path("/otp", builder -> builder
+                        .GET("/status", handler::getOtpStatus)
+                        .GET("/info", handler::getOtpInfo)
+                        .GET("/qr-code", handler::generateQRCode)
+                        .GET("/qr-code/image", handler::getQRCodeImage)
+                        .POST("/verify", handler::verifyOtp)
+                        .POST("/verify/batch", handler::verifyOtpBatch)
+                        .POST("/enable", handler::enableOtp)
+                        .POST("/disable", handler::disableOtp))
+                .build();
+    }
+}
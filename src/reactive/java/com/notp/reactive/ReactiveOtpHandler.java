@@ -0,0 +1,267 @@
+package com.notp.reactive;
+
+import com.notp.common.core.domain.AjaxResult;
+import com.notp.constant.QrCodeFormat;
+import com.notp.service.OtpService;
+import com.notp.util.QrCodeUtil;
+import com.notp.vo.OtpVerifyRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 响应式OTP接口处理器
+ * 路径、参数和响应体与servlet版OtpController一致；批量启用和导出仅由servlet版提供
+ *
+ * @author sign
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveOtpHandler {
+
+    private static final ParameterizedTypeReference<List<OtpVerifyRequest>> VERIFY_REQUESTS =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final ReactiveOtpService reactiveOtpService;
+    private final OtpService otpService;
+
+    /**
+     * 获取OTP状态
+     */
+    public Mono<ServerResponse> getOtpStatus(ServerRequest request) {
+        Long userId;
+        try {
+            userId = userId(request.queryParams());
+        } catch (IllegalArgumentException e) {
+            return ok(error("获取OTP状态失败: ", e));
+        }
+        if (userId == null) {
+            return ok(AjaxResult.error("用户ID不能为空且必须大于0"));
+        }
+        return reactiveOtpService.isOtpEnabled(userId)
+                .map(enabled -> {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("enabled", enabled);
+                    data.put("userId", userId);
+                    data.put("timestamp", System.currentTimeMillis());
+                    return AjaxResult.success(data);
+                })
+                .onErrorResume(e -> Mono.just(error("获取OTP状态失败: ", e)))
+                .flatMap(this::ok);
+    }
+
+    /**
+     * 获取OTP信息
+     */
+    public Mono<ServerResponse> getOtpInfo(ServerRequest request) {
+        Long userId;
+        try {
+            userId = userId(request.queryParams());
+        } catch (IllegalArgumentException e) {
+            return ok(error("获取OTP信息失败: ", e));
+        }
+        if (userId == null) {
+            return ok(AjaxResult.error("用户ID不能为空且必须大于0"));
+        }
+        return reactiveOtpService.getOtpInfo(userId)
+                .map(AjaxResult::success)
+                .defaultIfEmpty(AjaxResult.success((Object) null))
+                .onErrorResume(e -> Mono.just(error("获取OTP信息失败: ", e)))
+                .flatMap(this::ok);
+    }
+
+    /**
+     * 验证OTP验证码
+     */
+    public Mono<ServerResponse> verifyOtp(ServerRequest request) {
+        String clientIp = request.remoteAddress()
+                .map(InetSocketAddress::getAddress)
+                .map(address -> address.getHostAddress())
+                .orElse(null);
+        return params(request).flatMap(params -> {
+            Long userId = userId(params);
+            if (userId == null) {
+                return Mono.just(AjaxResult.error("用户ID不能为空且必须大于0"));
+            }
+            return reactiveOtpService.verifyOtp(userId, params.getFirst("code"), clientIp)
+                    .map(result -> {
+                        Map<String, Object> data = new HashMap<>();
+                        data.put("valid", result.isSuccess());
+                        data.put("userId", userId);
+                        data.put("timestamp", System.currentTimeMillis());
+                        data.put("code", result.getCode());
+                        data.put("message", result.getMessage());
+                        return AjaxResult.success(data);
+                    });
+        }).onErrorResume(e -> Mono.just(error("验证OTP失败: ", e))).flatMap(this::ok);
+    }
+
+    /**
+     * 批量验证OTP验证码
+     */
+    public Mono<ServerResponse> verifyOtpBatch(ServerRequest request) {
+        return request.bodyToMono(VERIFY_REQUESTS)
+                .defaultIfEmpty(List.of())
+                .flatMap(requests -> reactiveOtpService.call(() -> {
+                    var results = otpService.verifyOtpBatch(requests);
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("results", results);
+                    data.put("total", results.size());
+                    data.put("timestamp", System.currentTimeMillis());
+                    return AjaxResult.success(data);
+                }))
+                .onErrorResume(e -> Mono.just(error("批量验证OTP失败: ", e)))
+                .flatMap(this::ok);
+    }
+
+    /**
+     * 启用OTP验证
+     */
+    public Mono<ServerResponse> enableOtp(ServerRequest request) {
+        return params(request).flatMap(params -> {
+            Long userId = userId(params);
+            if (userId == null) {
+                return Mono.just(AjaxResult.error("用户ID不能为空且必须大于0"));
+            }
+            return reactiveOtpService.call(() -> {
+                if (!otpService.enableOtp(userId, params.getFirst("secret"), params.getFirst("code"))) {
+                    return AjaxResult.error("验证码错误: 请输入正确的6位验证码");
+                }
+                Map<String, Object> data = new HashMap<>();
+                data.put("success", true);
+                data.put("enabled", true);
+                data.put("message", "OTP启用成功");
+                data.put("userId", userId);
+                data.put("timestamp", System.currentTimeMillis());
+                return AjaxResult.success(data);
+            });
+        }).onErrorResume(e -> Mono.just(error("启用OTP失败: ", e))).flatMap(this::ok);
+    }
+
+    /**
+     * 禁用OTP验证
+     */
+    public Mono<ServerResponse> disableOtp(ServerRequest request) {
+        return params(request).flatMap(params -> {
+            Long userId = userId(params);
+            if (userId == null) {
+                return Mono.just(AjaxResult.error("用户ID不能为空且必须大于0"));
+            }
+            return reactiveOtpService.call(() -> {
+                boolean disabled = otpService.disableOtp(userId, params.getFirst("code"));
+                Map<String, Object> result = new HashMap<>();
+                result.put("disabled", disabled);
+                result.put("userId", userId);
+                result.put("username", "user" + userId);
+                return AjaxResult.success("OTP验证已禁用", result);
+            });
+        }).onErrorResume(e -> Mono.just(error("禁用OTP失败: ", e))).flatMap(this::ok);
+    }
+
+    /**
+     * 生成OTP二维码，响应带ETag
+     */
+    public Mono<ServerResponse> generateQRCode(ServerRequest request) {
+        MultiValueMap<String, String> params = request.queryParams();
+        Long userId;
+        QrCodeFormat format;
+        try {
+            userId = userId(params);
+            format = QrCodeFormat.fromValue(params.getFirst("format"));
+        } catch (IllegalArgumentException e) {
+            return ok(error("生成二维码失败: ", e));
+        }
+        if (userId == null) {
+            return ok(AjaxResult.error("用户ID不能为空且必须大于0"));
+        }
+        return reactiveOtpService.call(() -> otpService.generateQRCodeData(userId, format, params.getFirst("profile")))
+                .flatMap(qrData -> ServerResponse.ok()
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .eTag(QrCodeUtil.fingerprint((String) qrData.get("qrCodeUrl"), QrCodeUtil.QR_CODE_SIZE, format))
+                        .bodyValue(AjaxResult.success(qrData)))
+                .onErrorResume(e -> ok(error("生成二维码失败: ", e)));
+    }
+
+    /**
+     * 获取OTP二维码图片
+     */
+    public Mono<ServerResponse> getQRCodeImage(ServerRequest request) {
+        MultiValueMap<String, String> params = request.queryParams();
+        Long userId;
+        int size;
+        QrCodeFormat format;
+        try {
+            userId = userId(params);
+            size = Integer.parseInt(params.getFirst("size") == null ? "400" : params.getFirst("size"));
+            format = QrCodeFormat.fromValue(params.getFirst("format"));
+        } catch (IllegalArgumentException e) {
+            return ServerResponse.badRequest().build();
+        }
+        if (userId == null || size < 100 || size > 1000) {
+            return ServerResponse.badRequest().build();
+        }
+        return reactiveOtpService.call(() -> otpService.getQrCodeImage(userId, size, format))
+                .flatMap(image -> ServerResponse.ok()
+                        .contentType(MediaType.parseMediaType(image.getFormat().getContentType()))
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .eTag(image.getFingerprint())
+                        .bodyValue(image.getContent()))
+                .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest().build())
+                .onErrorResume(e -> ServerResponse.status(500).build());
+    }
+
+    /**
+     * 合并查询参数和表单参数（与@RequestParam的取值范围一致）
+     */
+    private static Mono<MultiValueMap<String, String>> params(ServerRequest request) {
+        boolean form = request.headers().contentType()
+                .map(MediaType.APPLICATION_FORM_URLENCODED::isCompatibleWith)
+                .orElse(false);
+        if (!form) {
+            return Mono.just(request.queryParams());
+        }
+        return request.formData().map(formData -> {
+            MultiValueMap<String, String> params = new LinkedMultiValueMap<>(request.queryParams());
+            params.addAll(formData);
+            return params;
+        });
+    }
+
+    /**
+     * 解析userId参数，缺失或不大于0时返回null，格式错误时抛出IllegalArgumentException
+     */
+    private static Long userId(MultiValueMap<String, String> params) {
+        String value = params.getFirst("userId");
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        long userId = Long.parseLong(value);
+        return userId > 0 ? userId : null;
+    }
+
+    private static AjaxResult error(String prefix, Throwable e) {
+        if (e instanceof IllegalArgumentException) {
+            return AjaxResult.error("参数错误: " + e.getMessage());
+        }
+        return AjaxResult.error(prefix + e.getMessage());
+    }
+
+    private Mono<ServerResponse> ok(AjaxResult result) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(result);
+    }
+}
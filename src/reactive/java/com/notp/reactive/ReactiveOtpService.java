@@ -0,0 +1,120 @@
+package com.notp.reactive;
+
+import com.notp.audit.OtpAuditLog;
+import com.notp.cache.EnrolledUserFilter;
+import com.notp.cache.OtpKeyCache;
+import com.notp.cache.OtpKeyEntry;
+import com.notp.cache.OtpStatusCache;
+import com.notp.constant.OtpErrorCode;
+import com.notp.crypto.OtpSecretCipher;
+import com.notp.metrics.OtpMetrics;
+import com.notp.ratelimit.OtpAttemptLimiter;
+import com.notp.service.OtpService;
+import com.notp.util.TotpUtil;
+import com.notp.vo.OtpInfoVo;
+import com.notp.vo.OtpVerifyResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 响应式OTP服务
+ * 状态、信息和验证通过R2DBC非阻塞读取，与 {@link OtpService} 共用同一组缓存、过滤器和尝试限制；
+ * 验证时先用R2DBC把密钥装入密钥缓存，再在有界调度器上调用 OtpService 完成HMAC计算，两套接口结果一致。
+ * 其余操作（启用、禁用、二维码、批量验证）直接在有界调度器上调用 OtpService。
+ *
+ * @author sign
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveOtpService {
+
+    private final OtpService otpService;
+    private final ReactiveSysUserOtpRepository repository;
+    private final OtpKeyCache otpKeyCache;
+    private final OtpStatusCache otpStatusCache;
+    private final EnrolledUserFilter enrolledUserFilter;
+    private final OtpAttemptLimiter otpAttemptLimiter;
+    private final OtpSecretCipher otpSecretCipher;
+    private final OtpMetrics otpMetrics;
+    private final OtpAuditLog otpAuditLog;
+    private final Scheduler otpScheduler;
+
+    /**
+     * 检查用户是否启用OTP，与 OtpService#isOtpEnabled 相同的查找顺序，不读取密钥列
+     */
+    public Mono<Boolean> isOtpEnabled(Long userId) {
+        if (userId == null || !enrolledUserFilter.mightContain(userId)) {
+            return Mono.just(false);
+        }
+        OtpKeyEntry entry = otpKeyCache.getIfLoaded(userId);
+        if (entry != null) {
+            return Mono.just(entry.isEnabled());
+        }
+        return Mono.fromFuture(() -> otpStatusCache.getAsync(userId,
+                id -> timed(repository.findEnabledByUserId(id).defaultIfEmpty(false)).toFuture()));
+    }
+
+    /**
+     * 验证OTP验证码，被锁定时直接拒绝，不查库也不计算HMAC
+     */
+    public Mono<OtpVerifyResult> verifyOtp(Long userId, String otpCode, String clientIp) {
+        if (userId == null || otpCode == null) {
+            return Mono.just(OtpVerifyResult.fail(OtpErrorCode.PARAMETER_INVALID));
+        }
+        long start = System.nanoTime();
+        OtpErrorCode rejected = otpAttemptLimiter.check(userId, clientIp);
+        if (rejected != null) {
+            OtpVerifyResult result = OtpVerifyResult.fail(rejected);
+            otpAuditLog.record(userId, result.getCode(), clientIp, null);
+            otpMetrics.recordVerify(result, System.nanoTime() - start);
+            return Mono.just(result);
+        }
+        // 装入缓存后OtpService只做缓存读取和HMAC；用户不存在时不缓存，OtpService会在调度器上再查一次
+        Mono<OtpKeyEntry> load = enrolledUserFilter.mightContain(userId)
+                ? Mono.fromFuture(() -> otpKeyCache.getAsync(userId, this::loadKeyEntry)) : Mono.empty();
+        return load.then(call(() -> otpService.verifyOtp(userId, otpCode, clientIp)));
+    }
+
+    /**
+     * 获取OTP信息，读取记录后在调度器上解密并生成URL
+     */
+    public Mono<OtpInfoVo> getOtpInfo(Long userId) {
+        if (userId == null) {
+            return Mono.error(new IllegalArgumentException("用户ID不能为空"));
+        }
+        if (!enrolledUserFilter.mightContain(userId)) {
+            return Mono.empty();
+        }
+        return timed(repository.findByUserId(userId))
+                .publishOn(otpScheduler)
+                .map(otpService::toOtpInfo);
+    }
+
+    /**
+     * 在有界调度器上执行阻塞或CPU密集的调用
+     */
+    public <T> Mono<T> call(Callable<T> callable) {
+        return Mono.fromCallable(callable).subscribeOn(otpScheduler);
+    }
+
+    private CompletableFuture<OtpKeyEntry> loadKeyEntry(Long userId) {
+        return timed(repository.findByUserId(userId))
+                .publishOn(otpScheduler)
+                .map(userOtp -> OtpKeyEntry.of(userOtp, TotpUtil.decodeSecret(otpSecretCipher.open(userOtp))))
+                .toFuture();
+    }
+
+    private <T> Mono<T> timed(Mono<T> query) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return query.doFinally(signal -> otpMetrics.recordLookup(System.nanoTime() - start));
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.notp.reactive;
+
+import com.notp.entity.SysUserOtp;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * sys_user_otp的R2DBC只读访问
+ * 查询语句与SysUserOtpMapper.xml中的同名查询一致
+ *
+ * @author sign
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveSysUserOtpRepository {
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * 根据用户ID查询OTP配置
+     */
+    public Mono<SysUserOtp> findByUserId(long userId) {
+        return databaseClient.sql("select id, user_id, secret, key_version, otp_type, algorithm, digits, period, "
+                        + "counter, enabled, create_time, update_time from sys_user_otp where user_id = :userId")
+                .bind("userId", userId)
+                .map((row, metadata) -> toEntity(row))
+                .one();
+    }
+
+    /**
+     * 根据用户ID只查询启用状态列，未配置时为空
+     */
+    public Mono<Boolean> findEnabledByUserId(long userId) {
+        return databaseClient.sql("select enabled from sys_user_otp where user_id = :userId")
+                .bind("userId", userId)
+                .map((row, metadata) -> toBoolean(row.get("enabled")))
+                .one();
+    }
+
+    private static SysUserOtp toEntity(Row row) {
+        SysUserOtp userOtp = new SysUserOtp();
+        userOtp.setId(row.get("id", Long.class));
+        userOtp.setUserId(row.get("user_id", Long.class));
+        userOtp.setSecret(row.get("secret", String.class));
+        userOtp.setKeyVersion(row.get("key_version", Integer.class));
+        userOtp.setOtpType(row.get("otp_type", String.class));
+        userOtp.setAlgorithm(row.get("algorithm", String.class));
+        userOtp.setDigits(row.get("digits", Integer.class));
+        userOtp.setPeriod(row.get("period", Integer.class));
+        userOtp.setCounter(row.get("counter", Long.class));
+        userOtp.setEnabled(toBoolean(row.get("enabled")));
+        userOtp.setCreateTime(toDate(row.get("create_time", LocalDateTime.class)));
+        userOtp.setUpdateTime(toDate(row.get("update_time", LocalDateTime.class)));
+        return userOtp;
+    }
+
+    /**
+     * tinyint(1)按驱动配置可能解码为Boolean或整数
+     */
+    private static Boolean toBoolean(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return ((Number) value).intValue() != 0;
+    }
+
+    private static Date toDate(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+}
@@ -0,0 +1,198 @@
+package com.notp.binary;
+
+import com.notp.config.OtpProperties;
+import com.notp.constant.OtpErrorCode;
+import com.notp.service.OtpService;
+import com.notp.vo.OtpVerifyResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 二进制验证服务回环测试
+ * 服务绑定本机随机端口，验证由模拟的OtpService按用户ID和验证码确定结果
+ *
+ * @author sign
+ */
+class OtpBinaryServerTest {
+
+    private static final int MAX_PIPELINED = 8;
+
+    private SimpleMeterRegistry registry;
+    private OtpBinaryServer server;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void setUp() {
+        OtpService otpService = mock(OtpService.class);
+        when(otpService.verifyOtp(anyLong(), anyInt(), isNull())).thenAnswer(invocation -> {
+            OtpErrorCode result = expected(invocation.getArgument(0), invocation.getArgument(1));
+            return result == OtpErrorCode.SUCCESS ? OtpVerifyResult.success() : OtpVerifyResult.fail(result);
+        });
+        OtpProperties properties = new OtpProperties();
+        OtpProperties.Binary binary = properties.getBinary();
+        binary.setPort(0);
+        binary.setWorkerThreads(4);
+        // 队列很小，流水线请求一定会触发暂停读取和输出缓冲区写满
+        binary.setMaxPipelined(MAX_PIPELINED);
+        registry = new SimpleMeterRegistry();
+        server = new OtpBinaryServer(otpService, properties, registry);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void pipelinedResponsesKeepRequestOrder() throws IOException {
+        int count = 5000;
+        long[] userIds = new long[count];
+        int[] codes = new int[count];
+        OtpErrorCode[] expected = new OtpErrorCode[count];
+        for (int i = 0; i < count; i++) {
+            userIds[i] = 1000 + i;
+            codes[i] = i % 3 == 0 ? (int) userIds[i] : i;
+            expected[i] = expected(userIds[i], codes[i]);
+        }
+
+        OtpErrorCode[] results = new OtpErrorCode[count];
+        try (OtpBinaryClient client = new OtpBinaryClient("127.0.0.1", server.getPort())) {
+            client.verify(userIds, codes, results);
+            assertEquals(OtpErrorCode.SUCCESS, client.verify(41L, 41));
+        }
+        assertArrayEquals(expected, results);
+    }
+
+    @Test
+    void unreadResponsesApplyBackpressureWithoutReordering() throws Exception {
+        // 先写完全部请求再读取：服务端输出缓冲区和套接字缓冲区写满后靠OP_WRITE继续写出
+        int count = 200_000;
+        try (SocketChannel channel = SocketChannel.open()) {
+            // 接收缓冲区很小，服务端很快写不出去
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            channel.connect(new InetSocketAddress("127.0.0.1", server.getPort()));
+            CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+                ByteBuffer frames = ByteBuffer.allocate(1024 * OtpBinaryProtocol.REQUEST_FRAME);
+                try {
+                    for (int i = 0; i < count; i++) {
+                        if (!frames.hasRemaining()) {
+                            writeFully(channel, frames.flip());
+                            frames.clear();
+                        }
+                        frames.putInt(OtpBinaryProtocol.REQUEST_LENGTH).putLong(i + 1L).putInt(i % 2 == 0 ? i + 1 : 0);
+                    }
+                    writeFully(channel, frames.flip());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(200);
+
+            ByteBuffer responses = readFully(channel, count * OtpBinaryProtocol.RESPONSE_FRAME);
+            writer.get(30, TimeUnit.SECONDS);
+            for (int i = 0; i < count; i++) {
+                assertEquals(OtpBinaryProtocol.RESPONSE_LENGTH, responses.getInt(), "response " + i);
+                assertEquals(expected(i + 1L, i % 2 == 0 ? i + 1 : 0), OtpErrorCode.fromByte(responses.get()),
+                        "response " + i);
+            }
+        }
+    }
+
+    @Test
+    void frameSplitAcrossReadsIsReassembled() throws Exception {
+        ByteBuffer frames = ByteBuffer.allocate(2 * OtpBinaryProtocol.REQUEST_FRAME);
+        frames.putInt(OtpBinaryProtocol.REQUEST_LENGTH).putLong(8L).putInt(8);
+        frames.putInt(OtpBinaryProtocol.REQUEST_LENGTH).putLong(9L).putInt(1);
+        byte[] bytes = frames.array();
+        // 切在长度字段中间、负载中间和第二帧内
+        int[] cuts = {2, 9, 20, bytes.length};
+
+        try (SocketChannel channel = connect()) {
+            int from = 0;
+            for (int cut : cuts) {
+                writeFully(channel, ByteBuffer.wrap(bytes, from, cut - from));
+                from = cut;
+                Thread.sleep(50);
+            }
+            ByteBuffer responses = readFully(channel, 2 * OtpBinaryProtocol.RESPONSE_FRAME);
+            assertEquals(OtpBinaryProtocol.RESPONSE_LENGTH, responses.getInt());
+            assertEquals(OtpErrorCode.SUCCESS, OtpErrorCode.fromByte(responses.get()));
+            assertEquals(OtpBinaryProtocol.RESPONSE_LENGTH, responses.getInt());
+            assertEquals(OtpErrorCode.INVALID_CODE, OtpErrorCode.fromByte(responses.get()));
+        }
+    }
+
+    @Test
+    void badLengthPrefixClosesConnection() throws Exception {
+        try (SocketChannel channel = connect()) {
+            ByteBuffer valid = ByteBuffer.allocate(OtpBinaryProtocol.REQUEST_FRAME);
+            valid.putInt(OtpBinaryProtocol.REQUEST_LENGTH).putLong(5L).putInt(5).flip();
+            writeFully(channel, valid);
+            ByteBuffer response = readFully(channel, OtpBinaryProtocol.RESPONSE_FRAME);
+            response.getInt();
+            assertEquals(OtpErrorCode.SUCCESS, OtpErrorCode.fromByte(response.get()));
+
+            ByteBuffer bad = ByteBuffer.allocate(OtpBinaryProtocol.REQUEST_FRAME);
+            bad.putInt(99).putLong(5L).putInt(5).flip();
+            writeFully(channel, bad);
+            assertThrows(EOFException.class, () -> readFully(channel, 1));
+        }
+        assertEquals(1.0, registry.get("otp.binary.protocol.errors").counter().count());
+
+        // 其他连接不受影响
+        try (OtpBinaryClient client = new OtpBinaryClient("127.0.0.1", server.getPort())) {
+            assertEquals(OtpErrorCode.SUCCESS, client.verify(6L, 6));
+        }
+    }
+
+    /**
+     * 验证码等于用户ID时通过，用户ID为7的倍数时视为未配置
+     */
+    private static OtpErrorCode expected(long userId, int code) {
+        if (userId % 7 == 0) {
+            return OtpErrorCode.NOT_CONFIGURED;
+        }
+        return code == userId ? OtpErrorCode.SUCCESS : OtpErrorCode.INVALID_CODE;
+    }
+
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()));
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(SocketChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("服务端关闭了连接");
+            }
+        }
+        return buffer.flip();
+    }
+}
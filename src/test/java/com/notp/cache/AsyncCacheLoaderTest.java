@@ -0,0 +1,160 @@
+package com.notp.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 异步缓存调用线程加载测试
+ *
+ * @author sign
+ */
+class AsyncCacheLoaderTest {
+
+    private final AsyncCache<Long, String> cache = Caffeine.newBuilder().buildAsync();
+
+    @Test
+    void loadsOnCallerThreadAndCachesValue() {
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> loaderThread = new AtomicReference<>();
+
+        String value = AsyncCacheLoader.get(cache, 1L, key -> {
+            loaderThread.set(Thread.currentThread());
+            return "v" + key;
+        });
+
+        assertEquals("v1", value);
+        assertSame(caller, loaderThread.get());
+        assertEquals("v1", AsyncCacheLoader.getIfLoaded(cache, 1L));
+        assertEquals("v1", AsyncCacheLoader.get(cache, 1L, key -> {
+            throw new AssertionError("命中时不应再次加载");
+        }));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        int threads = 16;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> AsyncCacheLoader.get(cache, 7L, key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "seven";
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                results.add(executor.submit(() -> AsyncCacheLoader.get(cache, 7L, key -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // 加载未完成时不视为已加载
+            assertNull(AsyncCacheLoader.getIfLoaded(cache, 7L));
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("seven", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void nullResultIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(AsyncCacheLoader.get(cache, 2L, key -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(AsyncCacheLoader.getIfLoaded(cache, 2L));
+        assertEquals("v2", AsyncCacheLoader.get(cache, 2L, key -> {
+            loads.incrementAndGet();
+            return "v2";
+        }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void loaderExceptionIsRethrownAndNotCached() {
+        IllegalStateException failure = new IllegalStateException("db down");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> AsyncCacheLoader.get(cache, 3L, key -> {
+                    throw failure;
+                }));
+
+        assertSame(failure, thrown);
+        assertNull(AsyncCacheLoader.getIfLoaded(cache, 3L));
+        assertEquals("v3", AsyncCacheLoader.get(cache, 3L, key -> "v3"));
+    }
+
+    @Test
+    void waitersSeeLoaderException() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> AsyncCacheLoader.get(cache, 4L, key -> {
+                loading.countDown();
+                await(release);
+                throw new IllegalStateException("db down");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = executor.submit(() -> AsyncCacheLoader.get(cache, 4L, key -> "unused"));
+            release.countDown();
+
+            for (Future<String> future : List.of(first, waiter)) {
+                Exception e = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e.getCause()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void invalidationDuringLoadIsHonoured() {
+        String value = AsyncCacheLoader.get(cache, 5L, key -> {
+            cache.synchronous().invalidate(key);
+            return "stale";
+        });
+
+        // 调用方拿到本次加载结果，但失效后不会被放回缓存
+        assertEquals("stale", value);
+        assertNull(AsyncCacheLoader.getIfLoaded(cache, 5L));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("等待超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
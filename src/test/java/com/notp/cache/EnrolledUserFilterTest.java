@@ -0,0 +1,106 @@
+package com.notp.cache;
+
+import com.notp.config.OtpProperties;
+import com.notp.invalidation.LoopbackOtpInvalidationTransport;
+import com.notp.invalidation.OtpInvalidationTransport;
+import com.notp.mapper.SysUserOtpMapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 已配置OTP用户过滤器测试
+ *
+ * @author sign
+ */
+class EnrolledUserFilterTest {
+
+    private SysUserOtpMapper mapper;
+    private OtpProperties properties;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mapper = mock(SysUserOtpMapper.class);
+        Cursor<Long> cursor = mock(Cursor.class);
+        when(cursor.iterator()).thenAnswer(invocation -> List.of(10L, 20L, 30L).iterator());
+        when(mapper.scanUserIds()).thenReturn(cursor);
+        properties = new OtpProperties();
+        properties.getEnrolledFilter().setExpectedInsertions(1000);
+        transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void disabledByDefault() {
+        EnrolledUserFilter filter = filter(mock(OtpInvalidationTransport.class));
+        filter.rebuild();
+
+        assertTrue(filter.mightContain(11L));
+        verify(mapper, never()).scanUserIds();
+    }
+
+    @Test
+    void loopbackTransportKeepsFilterOff() {
+        properties.getEnrolledFilter().setEnabled(true);
+        EnrolledUserFilter filter = filter(new LoopbackOtpInvalidationTransport());
+        filter.rebuild();
+
+        assertTrue(filter.mightContain(11L));
+        verify(mapper, never()).scanUserIds();
+    }
+
+    @Test
+    void everyUserMightBeEnrolledBeforeFirstBuild() {
+        properties.getEnrolledFilter().setEnabled(true);
+        EnrolledUserFilter filter = filter(mock(OtpInvalidationTransport.class));
+
+        assertTrue(filter.mightContain(11L));
+    }
+
+    @Test
+    void missBelowScannedMaximumIsNotEnrolled() {
+        properties.getEnrolledFilter().setEnabled(true);
+        EnrolledUserFilter filter = filter(mock(OtpInvalidationTransport.class));
+        filter.rebuild();
+
+        assertTrue(filter.mightContain(10L));
+        assertTrue(filter.mightContain(30L));
+        assertFalse(filter.mightContain(11L));
+    }
+
+    @Test
+    void usersCreatedAfterRebuildFallThrough() {
+        properties.getEnrolledFilter().setEnabled(true);
+        EnrolledUserFilter filter = filter(mock(OtpInvalidationTransport.class));
+        filter.rebuild();
+
+        // 其他节点新建并启用的用户，广播未到达时也不能判为未配置
+        assertTrue(filter.mightContain(31L));
+    }
+
+    @Test
+    void addedUserIsEnrolled() {
+        properties.getEnrolledFilter().setEnabled(true);
+        EnrolledUserFilter filter = filter(mock(OtpInvalidationTransport.class));
+        filter.rebuild();
+        filter.add(15L);
+
+        assertTrue(filter.mightContain(15L));
+    }
+
+    private EnrolledUserFilter filter(OtpInvalidationTransport transport) {
+        return new EnrolledUserFilter(mapper, properties, transactionTemplate, transport);
+    }
+}
@@ -0,0 +1,95 @@
+package com.notp.cache;
+
+import com.notp.config.OtpProperties;
+import com.notp.constant.QrCodeFormat;
+import com.notp.metrics.OtpMetrics;
+import com.notp.vo.QrCodeImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 二维码缓存测试
+ *
+ * @author sign
+ */
+class QrCodeCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QrCodeCache cache = new QrCodeCache(new OtpProperties(), registry, new OtpMetrics(registry));
+
+    @Test
+    void returnsCachedImage() {
+        QrCodeImage first = cache.get(1L, text(1L, 0), 0, QrCodeFormat.MATRIX);
+
+        assertSame(first, cache.get(1L, text(1L, 0), 0, QrCodeFormat.MATRIX));
+        assertEquals(1.0, size());
+    }
+
+    @Test
+    void invalidateClearsOnlyThatUser() {
+        QrCodeImage user1 = cache.get(1L, text(1L, 0), 0, QrCodeFormat.MATRIX);
+        cache.get(1L, text(1L, 1), 0, QrCodeFormat.MATRIX);
+        QrCodeImage user2 = cache.get(2L, text(2L, 0), 0, QrCodeFormat.MATRIX);
+
+        cache.invalidate(1L);
+
+        assertEquals(1.0, size());
+        assertNotSame(user1, cache.get(1L, text(1L, 0), 0, QrCodeFormat.MATRIX));
+        assertSame(user2, cache.get(2L, text(2L, 0), 0, QrCodeFormat.MATRIX));
+    }
+
+    @Test
+    void concurrentRenderAndInvalidateLeaveNoUnindexedEntries() throws Exception {
+        int readers = 4;
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(readers);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < readers; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    for (int i = offset; running.get(); i++) {
+                        cache.get(1L, text(1L, i % 16), 0, QrCodeFormat.MATRIX);
+                    }
+                }));
+            }
+            started.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 2000; i++) {
+                cache.invalidate(1L);
+            }
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 与失效并发渲染的每一项都必须登记在索引中，最后一次失效能全部清除
+        cache.invalidate(1L);
+        assertEquals(0.0, size());
+    }
+
+    private double size() {
+        return registry.get("cache.size").tag("cache", "otpQrCodeCache").gauge().value();
+    }
+
+    private static String text(long userId, int n) {
+        return "otpauth://totp/NOTP:user" + userId + "?secret=JBSWY3DPEHPK3PX" + (char) ('A' + n) + "&issuer=NOTP";
+    }
+}
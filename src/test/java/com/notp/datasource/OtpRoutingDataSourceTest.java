@@ -0,0 +1,177 @@
+package com.notp.datasource;
+
+import com.notp.config.OtpProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 读写分离路由测试
+ * 主库和从库用模拟数据源代替，查询返回取到连接的数据源名称
+ *
+ * @author sign
+ */
+class OtpRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica0;
+    private DataSource replica1;
+    private Map<DataSource, Connection> connections;
+    private SimpleMeterRegistry registry;
+    private OtpRoutingDataSource routingDataSource;
+    private OtpReadRouting readRouting;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connections = new LinkedHashMap<>();
+        primary = dataSource();
+        replica0 = dataSource();
+        replica1 = dataSource();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        registry = new SimpleMeterRegistry();
+        routingDataSource = new OtpRoutingDataSource(primary, replicas, Duration.ofHours(1), Duration.ofSeconds(1),
+                registry);
+        routingDataSource.afterPropertiesSet();
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("otpRoutingDataSource", routingDataSource);
+        readRouting = new OtpReadRouting(beanFactory.getBeanProvider(OtpRoutingDataSource.class), new OtpProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        routingDataSource.close();
+        ReadRoutingContext.clear();
+    }
+
+    @Test
+    void readsRoundRobinOverReplicas() {
+        assertEquals(List.of("replica-0", "replica-1", "replica-0", "replica-1"), readTimes(1L, 4));
+        assertNull(ReadRoutingContext.get());
+        // 不经过 OtpReadRouting 的访问（写入）走主库
+        assertEquals("primary", query().get());
+    }
+
+    @Test
+    void readsInsideTransactionUsePrimary() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals("primary", readRouting.read(1L, query()));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @Test
+    void readsStickToPrimaryAfterWrite() {
+        readRouting.markWritten(7L);
+        assertEquals("primary", readRouting.read(7L, query()));
+        assertEquals("primary", readRouting.read(List.of(1L, 7L), query()));
+        assertEquals("replica-0", readRouting.read(List.of(1L, 2L), query()));
+        assertEquals("replica-1", readRouting.read(1L, query()));
+    }
+
+    @Test
+    void failsOverToPrimaryOnConnectionFailure() throws SQLException {
+        when(replica0.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+
+        assertEquals("primary", readRouting.read(1L, query()));
+        assertEquals(1.0, registry.get("otp.datasource.replica.failovers").counter().count());
+        assertEquals(0.0, registry.get("otp.datasource.replica.up").tag("replica", "replica-0").gauge().value());
+        // 摘除后只使用剩余的从库
+        assertEquals(List.of("replica-1", "replica-1", "replica-1"), readTimes(1L, 3));
+        assertNull(ReadRoutingContext.get());
+    }
+
+    @Test
+    void doesNotRetryStatementErrors() {
+        assertThrows(DataIntegrityViolationException.class, () -> readRouting.read(1L, () -> {
+            throw new DataIntegrityViolationException("duplicate");
+        }));
+        assertEquals(0.0, registry.get("otp.datasource.replica.failovers").counter().count());
+        assertEquals(List.of("replica-0", "replica-1"), readTimes(1L, 2));
+    }
+
+    @Test
+    void healthChecksRemoveAndRestoreReplicas() throws SQLException {
+        when(connections.get(replica1).isValid(anyInt())).thenReturn(false);
+        routingDataSource.checkReplicas();
+        assertEquals(List.of("replica-0", "replica-0"), readTimes(1L, 2));
+        assertEquals(0.0, registry.get("otp.datasource.replica.up").tag("replica", "replica-1").gauge().value());
+
+        doThrow(new SQLException("Connection refused", "08001")).when(replica0).getConnection();
+        routingDataSource.checkReplicas();
+        assertEquals("primary", readRouting.read(1L, query()));
+
+        doReturn(connections.get(replica0)).when(replica0).getConnection();
+        when(connections.get(replica1).isValid(anyInt())).thenReturn(true);
+        routingDataSource.checkReplicas();
+        assertEquals(1.0, registry.get("otp.datasource.replica.up").tag("replica", "replica-1").gauge().value());
+        List<String> targets = readTimes(1L, 2);
+        assertEquals(2, targets.stream().filter(target -> target.startsWith("replica-")).distinct().count());
+    }
+
+    private List<String> readTimes(Long userId, int times) {
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            targets.add(readRouting.read(userId, query()));
+        }
+        return targets;
+    }
+
+    /**
+     * 与MyBatis相同经由DataSourceUtils取连接，取不到时抛出CannotGetJdbcConnectionException
+     */
+    private Supplier<String> query() {
+        return () -> {
+            Connection connection = DataSourceUtils.getConnection(routingDataSource);
+            try {
+                return nameOf(connection);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, routingDataSource);
+            }
+        };
+    }
+
+    private String nameOf(Connection connection) {
+        if (connection == connections.get(primary)) {
+            return "primary";
+        }
+        return connection == connections.get(replica0) ? "replica-0" : "replica-1";
+    }
+
+    private DataSource dataSource() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(dataSource.getConnection()).thenReturn(connection);
+        connections.put(dataSource, connection);
+        return dataSource;
+    }
+}
@@ -0,0 +1,216 @@
+package com.notp.ratelimit;
+
+import com.notp.config.OtpProperties;
+import com.notp.constant.OtpErrorCode;
+import com.notp.metrics.OtpMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 进程内验证尝试限制测试
+ * 时间由测试控制：窗口5分钟、每用户5次、首次锁定1分钟、最长1小时
+ *
+ * @author sign
+ */
+class InMemoryOtpAttemptLimiterTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long WINDOW = Duration.ofMinutes(5).toMillis();
+    private static final long USER = 1L;
+    private static final String IP = "10.0.0.1";
+
+    private final AtomicLong now = new AtomicLong(T0);
+    private OtpProperties.RateLimit config;
+
+    @BeforeEach
+    void setUp() {
+        config = new OtpProperties.RateLimit();
+        config.setCapacity(1024);
+    }
+
+    @Test
+    void limitIsReachedAtExactlyMaxReservations() {
+        OtpAttemptLimiter limiter = limiter();
+        for (int i = 0; i < config.getUserMaxFailures(); i++) {
+            assertNull(limiter.tryAcquire(USER, IP), "attempt " + i);
+        }
+        assertEquals(OtpErrorCode.LOCKED_OUT, limiter.tryAcquire(USER, IP));
+
+        // 拒绝的占用已撤回，未计入的尝试归还后腾出恰好一个名额
+        limiter.recordFailure(USER, IP, false);
+        assertNull(limiter.tryAcquire(USER, IP));
+        assertEquals(OtpErrorCode.LOCKED_OUT, limiter.tryAcquire(USER, IP));
+        // 超限拒绝本身不锁定
+        assertNull(limiter.check(USER, IP));
+    }
+
+    @Test
+    void concurrentReservationsNeverExceedLimit() throws Exception {
+        OtpAttemptLimiter limiter = limiter();
+        int threads = 16;
+        int attempts = 200;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int acquired = 0;
+                    for (int i = 0; i < attempts / threads; i++) {
+                        if (limiter.tryAcquire(USER, IP) == null) {
+                            acquired++;
+                        }
+                    }
+                    return acquired;
+                }));
+            }
+            int acquired = 0;
+            for (Future<Integer> future : futures) {
+                acquired += future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(config.getUserMaxFailures(), acquired);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void successReleasesReservation() {
+        OtpAttemptLimiter limiter = limiter();
+        for (int i = 0; i < config.getUserMaxFailures() * 4; i++) {
+            assertNull(limiter.tryAcquire(USER, IP), "attempt " + i);
+            limiter.recordSuccess(USER, IP);
+        }
+
+        // 成功同时清零之前的失败次数
+        fail(limiter, config.getUserMaxFailures() - 1);
+        assertNull(limiter.tryAcquire(USER, IP));
+        limiter.recordSuccess(USER, IP);
+        for (int i = 0; i < config.getUserMaxFailures(); i++) {
+            assertNull(limiter.tryAcquire(USER, IP), "attempt " + i);
+        }
+    }
+
+    @Test
+    void lockoutDoublesWithEachStrikeUpToMaximum() {
+        config.setMaxLockout(Duration.ofMinutes(3));
+        OtpAttemptLimiter limiter = limiter();
+        long[] expectedSeconds = {60, 120, 180, 180};
+        for (long seconds : expectedSeconds) {
+            fail(limiter, config.getUserMaxFailures() - 1);
+            assertNull(limiter.check(USER, IP));
+            fail(limiter, 1);
+            assertEquals(OtpErrorCode.LOCKED_OUT, limiter.check(USER, IP));
+            assertEquals(OtpErrorCode.LOCKED_OUT, limiter.tryAcquire(USER, IP));
+
+            advance(seconds * 1000 - 1000);
+            assertEquals(OtpErrorCode.LOCKED_OUT, limiter.check(USER, IP), "lockout " + seconds + "s");
+            advance(1000);
+            assertNull(limiter.check(USER, IP), "lockout " + seconds + "s");
+        }
+    }
+
+    @Test
+    void strikesResetAfterRetention() {
+        config.setStrikeReset(Duration.ofHours(1));
+        OtpAttemptLimiter limiter = limiter();
+        fail(limiter, config.getUserMaxFailures());
+        advance(Duration.ofMinutes(1).toMillis());
+        fail(limiter, config.getUserMaxFailures());
+        advance(Duration.ofMinutes(2).toMillis());
+
+        // 超过两个保留周期后锁定次数被丢弃，重新从首次锁定时长开始
+        advance(Duration.ofHours(2).toMillis());
+        fail(limiter, config.getUserMaxFailures());
+        advance(Duration.ofMinutes(1).toMillis());
+        assertNull(limiter.check(USER, IP));
+    }
+
+    @Test
+    void windowSlidesAcrossRotation() {
+        OtpAttemptLimiter limiter = limiter();
+        fail(limiter, 4);
+
+        // 恰好轮换：上一代4次按剩余比例1.0全部计入
+        advance(WINDOW);
+        assertNull(limiter.tryAcquire(USER, IP));
+        assertEquals(OtpErrorCode.LOCKED_OUT, limiter.tryAcquire(USER, IP));
+        limiter.recordFailure(USER, IP, false);
+
+        // 过去半个窗口：上一代4次折算为2次
+        advance(WINDOW / 2);
+        for (int i = 0; i < 3; i++) {
+            assertNull(limiter.tryAcquire(USER, IP), "attempt " + i);
+        }
+        assertEquals(OtpErrorCode.LOCKED_OUT, limiter.tryAcquire(USER, IP));
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure(USER, IP, false);
+        }
+
+        // 超过两个窗口未写入，两代都已过期
+        advance(2 * WINDOW);
+        for (int i = 0; i < config.getUserMaxFailures(); i++) {
+            assertNull(limiter.tryAcquire(USER, IP), "attempt " + i);
+        }
+        assertEquals(OtpErrorCode.LOCKED_OUT, limiter.tryAcquire(USER, IP));
+    }
+
+    @Test
+    void zeroIpLimitDisablesIpLimiting() {
+        OtpAttemptLimiter limiter = limiter();
+        for (long userId = 100; userId < 200; userId++) {
+            fail(limiter, userId, config.getUserMaxFailures());
+        }
+
+        assertNull(limiter.check(USER, IP));
+        assertNull(limiter.tryAcquire(USER, IP));
+    }
+
+    @Test
+    void ipLimitLocksIpAcrossUsers() {
+        config.setIpMaxFailures(3);
+        OtpAttemptLimiter limiter = limiter();
+        for (long userId = 100; userId < 103; userId++) {
+            fail(limiter, userId, 1);
+        }
+
+        assertEquals(OtpErrorCode.TOO_MANY_ATTEMPTS, limiter.tryAcquire(USER, IP));
+        assertNull(limiter.tryAcquire(USER, "10.0.0.2"));
+        // 不带IP的调用方（如二进制接口）不受IP锁定影响
+        assertNull(limiter.tryAcquire(USER, null));
+    }
+
+    private InMemoryOtpAttemptLimiter limiter() {
+        return new InMemoryOtpAttemptLimiter(config, new OtpMetrics(new SimpleMeterRegistry()), now::get);
+    }
+
+    private void fail(OtpAttemptLimiter limiter, int times) {
+        fail(limiter, USER, times);
+    }
+
+    private void fail(OtpAttemptLimiter limiter, long userId, int times) {
+        for (int i = 0; i < times; i++) {
+            assertNull(limiter.tryAcquire(userId, IP), "failure " + i);
+            limiter.recordFailure(userId, IP, true);
+        }
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(millis);
+    }
+}
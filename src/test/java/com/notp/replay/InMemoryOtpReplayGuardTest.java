@@ -0,0 +1,119 @@
+package com.notp.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 进程内防重放存储测试
+ * 窗口1、最大步长30秒时每代跨度为 (2*1+2)*30 = 120 秒
+ *
+ * @author sign
+ */
+class InMemoryOtpReplayGuardTest {
+
+    private static final int STEP = 30;
+    private static final long SPAN = 120;
+
+    private final InMemoryOtpReplayGuard guard = new InMemoryOtpReplayGuard(64, 1, STEP);
+
+    @Test
+    void acceptsStepOnceAndRejectsReplay() {
+        assertTrue(guard.tryAccept(1L, 3000L));
+        assertFalse(guard.tryAccept(1L, 3000L));
+    }
+
+    @Test
+    void rejectsOlderStepAndAcceptsNewerStep() {
+        assertTrue(guard.tryAccept(1L, 3000L));
+        assertFalse(guard.tryAccept(1L, 3000L - STEP));
+        assertTrue(guard.tryAccept(1L, 3000L + STEP));
+    }
+
+    @Test
+    void usersAreIndependent() {
+        assertTrue(guard.tryAccept(1L, 3000L));
+        assertTrue(guard.tryAccept(2L, 3000L));
+    }
+
+    @Test
+    void previousGenerationStillRejectsReplayAfterRotation() {
+        long start = 3000L;
+        assertTrue(guard.tryAccept(1L, start));
+        assertTrue(guard.tryAccept(1L, start + SPAN - STEP));
+
+        // 其他用户的请求越过代边界触发轮换，用户1的记录转入上一代
+        assertTrue(guard.tryAccept(2L, start + SPAN));
+        assertFalse(guard.tryAccept(1L, start + SPAN - STEP));
+        assertTrue(guard.tryAccept(1L, start + SPAN));
+        assertFalse(guard.tryAccept(1L, start + SPAN));
+    }
+
+    @Test
+    void recordsOlderThanTwoGenerationsAreDropped() {
+        long start = 3000L;
+        assertTrue(guard.tryAccept(1L, start));
+        assertTrue(guard.tryAccept(2L, start + SPAN));
+        assertFalse(guard.tryAccept(1L, start));
+        assertTrue(guard.tryAccept(2L, start + 2 * SPAN));
+
+        // 两次轮换后该步长早已超出验证窗口，记录随上一代一起丢弃
+        assertTrue(guard.tryAccept(1L, start));
+    }
+
+    @Test
+    void concurrentAcceptOfSameStepSucceedsOnce() throws Exception {
+        assertExactlyOneAccepted(false);
+    }
+
+    @Test
+    void concurrentAcceptAcrossRotationSucceedsOnce() throws Exception {
+        assertExactlyOneAccepted(true);
+    }
+
+    /**
+     * 多个线程同时提交同一用户、同一步长，恰好一个成功
+     *
+     * @param rotate 提交的步长是否恰好越过代边界，让轮换与写入并发
+     */
+    private void assertExactlyOneAccepted(boolean rotate) throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int trial = 0; trial < 200; trial++) {
+                InMemoryOtpReplayGuard trialGuard = new InMemoryOtpReplayGuard(64, 1, STEP);
+                long start = 3000L;
+                assertTrue(trialGuard.tryAccept(99L, start));
+                long step = rotate ? start + SPAN : start + STEP;
+                CyclicBarrier barrier = new CyclicBarrier(threads);
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(() -> {
+                        barrier.await();
+                        return trialGuard.tryAccept(1L, step);
+                    }));
+                }
+                int accepted = 0;
+                for (Future<Boolean> future : futures) {
+                    if (future.get(10, TimeUnit.SECONDS)) {
+                        accepted++;
+                    }
+                }
+                assertEquals(1, accepted, "trial " + trial);
+                assertFalse(trialGuard.tryAccept(1L, step));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.notp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Base32编码解码测试
+ *
+ * @author sign
+ */
+class Base32Test {
+
+    /**
+     * RFC4648 第10节测试向量：原文、带填充编码
+     */
+    private static final String[][] RFC4648_VECTORS = {
+            {"", ""},
+            {"f", "MY======"},
+            {"fo", "MZXQ===="},
+            {"foo", "MZXW6==="},
+            {"foob", "MZXW6YQ="},
+            {"fooba", "MZXW6YTB"},
+            {"foobar", "MZXW6YTBOI======"},
+    };
+
+    @Test
+    void encodeMatchesRfc4648Vectors() {
+        for (String[] vector : RFC4648_VECTORS) {
+            byte[] bytes = vector[0].getBytes(StandardCharsets.US_ASCII);
+            assertEquals(vector[1], Base32.encode(bytes), vector[0]);
+            assertEquals(vector[1].replace("=", ""), Base32.encodeNoPadding(bytes), vector[0]);
+        }
+    }
+
+    @Test
+    void decodeMatchesRfc4648Vectors() {
+        for (String[] vector : RFC4648_VECTORS) {
+            byte[] expected = vector[0].getBytes(StandardCharsets.US_ASCII);
+            assertArrayEquals(expected, Base32.decode(vector[1]), vector[1]);
+            assertArrayEquals(expected, Base32.decode(vector[1].replace("=", "")), vector[1]);
+        }
+    }
+
+    @Test
+    void decodeIgnoresCaseWhitespaceAndHyphens() {
+        byte[] expected = "foobar".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(expected, Base32.decode("mzxw6ytboi======"));
+        assertArrayEquals(expected, Base32.decode("MzXw 6yTb oI"));
+        assertArrayEquals(expected, Base32.decode("MZXW-6YTB-OI"));
+        assertArrayEquals(expected, Base32.decode(" mzxw\t6ytb\noi== "));
+    }
+
+    @Test
+    void roundTripsSixtyFourByteSecrets() {
+        Random random = new Random(42);
+        byte[] secret = new byte[64];
+        char[] chars = new char[Base32.encodedLength(secret.length, false)];
+        byte[] decoded = new byte[secret.length];
+        for (int i = 0; i < 1000; i++) {
+            random.nextBytes(secret);
+            String encoded = Base32.encodeNoPadding(secret);
+            assertArrayEquals(secret, Base32.decode(encoded));
+            assertArrayEquals(secret, Base32.decode(encoded.toLowerCase()));
+
+            assertEquals(chars.length, Base32.encode(secret, 0, secret.length, chars, 0, false));
+            assertEquals(secret.length, Base32.decode(chars, 0, chars.length, decoded, 0));
+            assertArrayEquals(secret, decoded);
+        }
+    }
+
+    @Test
+    void decodeIntoBufferAtOffset() {
+        byte[] dst = new byte[8];
+        assertEquals(6, Base32.decode("MZXW6YTBOI", dst, 2));
+        assertArrayEquals("foobar".getBytes(StandardCharsets.US_ASCII), Arrays.copyOfRange(dst, 2, 8));
+        assertEquals(6, Base32.decodedLength("MZXW-6YTB-OI======"));
+        assertEquals(6, Base32.decodedLength("MZXW6YTBOI".toCharArray(), 0, 10));
+    }
+
+    @Test
+    void rejectsTooSmallBuffers() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Base32.encode(new byte[5], 0, 5, new char[7], 0, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> Base32.encode(new byte[1], 0, 1, new char[8], 1, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> Base32.decode("MZXW6YTBOI", new byte[5], 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> Base32.decode("MZXW6YTBOI".toCharArray(), 0, 10, new byte[6], 1));
+    }
+}
@@ -0,0 +1,128 @@
+package com.notp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 无锁long哈希表测试
+ *
+ * @author sign
+ */
+class ConcurrentLongTableTest {
+
+    @Test
+    void missingKeyReadsZero() {
+        ConcurrentLongTable table = new ConcurrentLongTable(16);
+
+        assertEquals(0L, table.get(42L));
+    }
+
+    @Test
+    void advanceOnlyMovesForward() {
+        ConcurrentLongTable table = new ConcurrentLongTable(16);
+
+        assertTrue(table.advance(7L, 100L));
+        assertFalse(table.advance(7L, 100L));
+        assertFalse(table.advance(7L, 99L));
+        assertTrue(table.advance(7L, 101L));
+        assertEquals(101L, table.get(7L));
+    }
+
+    @Test
+    void keysBeyondProbeLimitOverflow() {
+        // 4个槽位：前4个键占满后，其余键探测超过上限全部落入溢出表
+        ConcurrentLongTable table = new ConcurrentLongTable(4);
+        int keys = 100;
+        for (long key = 1; key <= keys; key++) {
+            assertTrue(table.advance(key, key * 10));
+        }
+        for (long key = 1; key <= keys; key++) {
+            assertEquals(key * 10, table.get(key), "key " + key);
+            assertFalse(table.advance(key, key * 10), "key " + key);
+            assertTrue(table.advance(key, key * 10 + 1), "key " + key);
+        }
+        assertEquals(0L, table.get(keys + 1));
+    }
+
+    @Test
+    void zeroKeyUsesOverflow() {
+        ConcurrentLongTable table = new ConcurrentLongTable(16);
+
+        assertTrue(table.advance(0L, 5L));
+        assertFalse(table.advance(0L, 5L));
+        assertEquals(5L, table.get(0L));
+        assertEquals(6L, table.updateAndGet(0L, v -> v + 1));
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() throws Exception {
+        // 键数远多于槽位，同时覆盖表内槽位和溢出表
+        ConcurrentLongTable table = new ConcurrentLongTable(8);
+        int threads = 8;
+        int keys = 64;
+        int rounds = 1000;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < rounds; round++) {
+                        for (long key = 1; key <= keys; key++) {
+                            table.updateAndGet(key, v -> v + 1);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (long key = 1; key <= keys; key++) {
+            assertEquals((long) threads * rounds, table.get(key), "key " + key);
+        }
+    }
+
+    @Test
+    void concurrentAdvanceOfSameValueSucceedsOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int trial = 0; trial < 200; trial++) {
+                ConcurrentLongTable table = new ConcurrentLongTable(16);
+                CyclicBarrier start = new CyclicBarrier(threads);
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return table.advance(3L, 30L);
+                    }));
+                }
+                int succeeded = 0;
+                for (Future<Boolean> future : futures) {
+                    if (future.get(10, TimeUnit.SECONDS)) {
+                        succeeded++;
+                    }
+                }
+                assertEquals(1, succeeded, "trial " + trial);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}